@@ -0,0 +1,119 @@
+package com.splitapp.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.CorsProcessor;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits API requests before they reach a controller, and so before they can
+ * queue for a database connection. A client over its rate gets 429, and
+ * while the connection pool is saturated requests costing at least
+ * {@code shedMinCost} get 503; both carry Retry-After and the CORS headers a
+ * browser needs to read them. Clients are told apart by their authenticated
+ * principal, falling back to the remote address, never by anything the client
+ * can change per request.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PATHS = "/api/**";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ConnectionPoolPressure poolPressure;
+    private final List<AdmissionProperties.CostRule> costs;
+    private final int shedMinCost;
+    private final int shedRetryAfterSeconds;
+    private final CorsConfigurationSource corsConfigurationSource;
+    private final CorsProcessor corsProcessor = new DefaultCorsProcessor();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final Counter rateLimited;
+    private final Counter shed;
+
+    public AdmissionControlFilter(TokenBucketRateLimiter rateLimiter, ConnectionPoolPressure poolPressure,
+                                  AdmissionProperties properties, MeterRegistry meterRegistry,
+                                  CorsConfigurationSource corsConfigurationSource) {
+        this.rateLimiter = rateLimiter;
+        this.poolPressure = poolPressure;
+        this.costs = List.copyOf(properties.getCosts());
+        this.shedMinCost = properties.getShedMinCost();
+        this.shedRetryAfterSeconds = properties.getShedRetryAfterSeconds();
+        this.corsConfigurationSource = corsConfigurationSource;
+        this.rateLimited = meterRegistry.counter("splitapp.admission.rejected", "reason", "rate-limited");
+        this.shed = meterRegistry.counter("splitapp.admission.rejected", "reason", "shed");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !pathMatcher.match(API_PATHS, request.getServletPath())
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int cost = costOf(request);
+        long waitNanos = rateLimiter.tryAcquire(clientKey(request), cost);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reject(request, response, HttpStatus.TOO_MANY_REQUESTS, secondsToWait(waitNanos));
+            return;
+        }
+        if (cost >= shedMinCost && poolPressure.isSaturated()) {
+            shed.increment();
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, shedRetryAfterSeconds);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private int costOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getServletPath();
+        for (AdmissionProperties.CostRule rule : costs) {
+            if ((rule.getMethod() == null || rule.getMethod().equalsIgnoreCase(method))
+                    && pathMatcher.match(rule.getPath(), path)) {
+                return rule.getCost();
+            }
+        }
+        return 1;
+    }
+
+    private static long secondsToWait(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        long retryAfterSeconds) throws IOException {
+        // A no-op when the security chain's CORS filter has already added the headers
+        CorsConfiguration cors = corsConfigurationSource.getCorsConfiguration(request);
+        if (cors != null && !corsProcessor.processRequest(cors, request, response)) {
+            return;
+        }
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+}
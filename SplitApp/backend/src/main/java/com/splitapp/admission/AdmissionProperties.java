@@ -0,0 +1,135 @@
+package com.splitapp.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code splitapp.admission.*}. Every client gets a bucket of {@code capacity}
+ * tokens refilled at {@code refillPerSecond}; a request takes the cost of the
+ * first rule matching it, or one token. Requests costing at least
+ * {@code shedMinCost} are also turned away while the connection pool is
+ * saturated.
+ */
+@Component
+@ConfigurationProperties(prefix = "splitapp.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    private int capacity = 60;
+    private double refillPerSecond = 20;
+    private int maxClients = 100000;
+    private List<CostRule> costs = new ArrayList<>();
+    private long shedAcquireWaitMs = 250;
+    private long shedSampleIntervalMs = 500;
+    private int shedMinCost = 5;
+    private int shedRetryAfterSeconds = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public double getRefillPerSecond() {
+        return refillPerSecond;
+    }
+
+    public void setRefillPerSecond(double refillPerSecond) {
+        this.refillPerSecond = refillPerSecond;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    public void setMaxClients(int maxClients) {
+        this.maxClients = maxClients;
+    }
+
+    public List<CostRule> getCosts() {
+        return costs;
+    }
+
+    public void setCosts(List<CostRule> costs) {
+        this.costs = costs;
+    }
+
+    public long getShedAcquireWaitMs() {
+        return shedAcquireWaitMs;
+    }
+
+    public void setShedAcquireWaitMs(long shedAcquireWaitMs) {
+        this.shedAcquireWaitMs = shedAcquireWaitMs;
+    }
+
+    public long getShedSampleIntervalMs() {
+        return shedSampleIntervalMs;
+    }
+
+    public void setShedSampleIntervalMs(long shedSampleIntervalMs) {
+        this.shedSampleIntervalMs = shedSampleIntervalMs;
+    }
+
+    public int getShedMinCost() {
+        return shedMinCost;
+    }
+
+    public void setShedMinCost(int shedMinCost) {
+        this.shedMinCost = shedMinCost;
+    }
+
+    public int getShedRetryAfterSeconds() {
+        return shedRetryAfterSeconds;
+    }
+
+    public void setShedRetryAfterSeconds(int shedRetryAfterSeconds) {
+        this.shedRetryAfterSeconds = shedRetryAfterSeconds;
+    }
+
+    /**
+     * Cost of the requests whose method and path match; a null method matches
+     * any method, and the path is an Ant pattern such as {@code /api/groups/*}.
+     */
+    public static class CostRule {
+        private String method;
+        private String path;
+        private int cost = 1;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+
+        public void setCost(int cost) {
+            this.cost = cost;
+        }
+    }
+}
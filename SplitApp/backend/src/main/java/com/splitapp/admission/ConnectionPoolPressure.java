@@ -0,0 +1,81 @@
+package com.splitapp.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tells whether any JDBC connection pool is saturated, from the Hikari metrics
+ * Spring Boot publishes for pool beans. Every sample interval, the mean time
+ * a pool took to hand out a connection since the previous sample is compared
+ * with the threshold; a pool with threads queued for a connection but none
+ * handed out in the whole interval counts as saturated too. Callers never
+ * wait: whoever finds the sample stale takes it, the rest read the last
+ * verdict. Pools without metrics never report pressure.
+ */
+public class ConnectionPoolPressure {
+
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    private static final String PENDING_GAUGE = "hikaricp.connections.pending";
+    private static final String POOL_TAG = "pool";
+
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+    private final long sampleIntervalNanos;
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    // Only touched by the thread holding the sampling flag
+    private final Map<Meter.Id, long[]> previous = new HashMap<>();
+    private volatile long sampledAt;
+    private volatile boolean saturated;
+
+    public ConnectionPoolPressure(MeterRegistry meterRegistry, long thresholdMillis, long sampleIntervalMillis) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+        this.sampledAt = System.nanoTime();
+    }
+
+    public boolean isSaturated() {
+        long now = System.nanoTime();
+        if (now - sampledAt >= sampleIntervalNanos && sampling.compareAndSet(false, true)) {
+            try {
+                saturated = sample();
+                sampledAt = now;
+            } finally {
+                sampling.set(false);
+            }
+        }
+        return saturated;
+    }
+
+    private boolean sample() {
+        Set<String> acquiring = new HashSet<>();
+        boolean saturatedPool = false;
+        for (Timer timer : meterRegistry.find(ACQUIRE_TIMER).timers()) {
+            long count = timer.count();
+            long totalNanos = (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            long[] last = previous.put(timer.getId(), new long[] {count, totalNanos});
+            if (last == null || count <= last[0]) {
+                continue;
+            }
+            acquiring.add(timer.getId().getTag(POOL_TAG));
+            if ((totalNanos - last[1]) / (count - last[0]) > thresholdNanos) {
+                saturatedPool = true;
+            }
+        }
+        for (Gauge gauge : meterRegistry.find(PENDING_GAUGE).gauges()) {
+            if (gauge.value() > 0 && !acquiring.contains(gauge.getId().getTag(POOL_TAG))) {
+                saturatedPool = true;
+            }
+        }
+        return saturatedPool;
+    }
+}
@@ -0,0 +1,96 @@
+package com.splitapp.admission;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client, kept as the single instant at which the bucket
+ * will be full again (the generic cell rate algorithm). Taking tokens pushes
+ * that instant forward by a compare-and-set, so no request ever blocks on
+ * another. A bucket that has refilled completely carries no state and may be
+ * dropped: idle buckets are swept every {@code SWEEP_INTERVAL}, and whenever
+ * the map grows past {@code maxClients}. If that is not enough, the buckets
+ * closest to full are dropped until a tenth of the room is free again; those
+ * clients lose the least by starting over with a full bucket.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConcurrentHashMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final int capacity;
+    private final int maxClients;
+    private final AtomicLong nextSweepAt;
+
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, int maxClients) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket needs a positive capacity and refill rate");
+        }
+        this.nanosPerToken = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond));
+        this.burstNanos = nanosPerToken * capacity;
+        this.capacity = capacity;
+        this.maxClients = maxClients;
+        this.nextSweepAt = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    }
+
+    /**
+     * Takes {@code cost} tokens from the client's bucket. A cost above the
+     * capacity is charged as a full bucket, so it can still pass once.
+     *
+     * @return 0 when admitted, otherwise how long to wait, in nanoseconds,
+     *         before the same request would be
+     */
+    public long tryAcquire(String client, int cost) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        AtomicLong bucket = fullAt.computeIfAbsent(client, key -> new AtomicLong(now));
+        if (fullAt.size() > maxClients) {
+            evictIdle(now);
+        }
+        long charge = nanosPerToken * Math.max(1, Math.min(cost, capacity));
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, now) + charge;
+            long overdraft = next - now - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return fullAt.size();
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweepAt.get();
+        if (now - due >= 0 && nextSweepAt.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    // A request racing the removal may charge the dropped bucket; that only forgives it
+    private void evictIdle(long now) {
+        fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+        if (fullAt.size() <= maxClients) {
+            return;
+        }
+        int excess = fullAt.size() - (maxClients - maxClients / 10);
+        List<Map.Entry<String, Long>> byFullAt = new ArrayList<>(fullAt.size());
+        fullAt.forEach((client, bucket) -> byFullAt.add(new AbstractMap.SimpleImmutableEntry<>(client, bucket.get())));
+        byFullAt.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> entry : byFullAt.subList(0, Math.min(excess, byFullAt.size()))) {
+            fullAt.remove(entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.splitapp.attachment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed files on local disk: a blob lives at
+ * {@code <root>/ab/cd/<sha256>}, so uploading the same bytes twice stores
+ * them once. Uploads stream through a fixed-size buffer into a temporary file
+ * while being hashed, then are moved into place, so a reader never sees a
+ * partial blob. Blobs are never deleted on the request path; the sweep
+ * removes the ones no row refers to any more. It first renames a blob to a
+ * tombstone and only then re-checks it, so an upload of the same bytes racing
+ * the sweep either lands before the rename, and the re-check keeps it, or
+ * after, as a new file the sweep no longer looks at.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final String TOMBSTONE_SUFFIX = ".tombstone";
+
+    private final Path root;
+    private final Path incoming;
+
+    public BlobStore(@Value("${splitapp.attachments.dir:data/attachments}") String dir) throws IOException {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+    }
+
+    /**
+     * Stores the stream's content, reading it to the end.
+     *
+     * @throws BlobTooLargeException when the content exceeds maxBytes; nothing is stored
+     */
+    public StoredBlob store(InputStream content, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(incoming, "upload-", ".tmp");
+        try {
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new BlobTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            String sha256 = toHex(digest.digest());
+            Path target = pathOf(sha256);
+            // Replaces an existing copy instead of touching it: the bytes are the same, and a
+            // fresh file cannot be the one the sweep has just buried
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return new StoredBlob(sha256, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path pathOf(String sha256) {
+        if (!SHA256_HEX.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 digest: " + sha256);
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * Deletes blobs untouched since {@code olderThan} that are no longer
+     * referenced, and uploads abandoned in the temporary area.
+     *
+     * @return number of files deleted
+     */
+    public int sweep(Instant olderThan, Predicate<String> referenced) throws IOException {
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                try {
+                    String name = file.getFileName().toString();
+                    boolean inBlobTree = !file.startsWith(incoming);
+                    if (inBlobTree && name.endsWith(TOMBSTONE_SUFFIX)) {
+                        // Left behind by a sweep that stopped halfway
+                        String sha256 = name.substring(0, name.length() - TOMBSTONE_SUFFIX.length());
+                        if (SHA256_HEX.matcher(sha256).matches()) {
+                            if (reap(file, sha256, olderThan, referenced)) {
+                                deleted++;
+                            }
+                            continue;
+                        }
+                    }
+                    if (Files.getLastModifiedTime(file).toInstant().isAfter(olderThan)) {
+                        continue;
+                    }
+                    if (inBlobTree && SHA256_HEX.matcher(name).matches()) {
+                        if (!referenced.test(name)) {
+                            Path tombstone = file.resolveSibling(name + TOMBSTONE_SUFFIX);
+                            Files.move(file, tombstone, StandardCopyOption.ATOMIC_MOVE);
+                            if (reap(tombstone, name, olderThan, referenced)) {
+                                deleted++;
+                            }
+                        }
+                        continue;
+                    }
+                    Files.deleteIfExists(file);
+                    deleted++;
+                } catch (NoSuchFileException e) {
+                    // Buried or replaced since the walk listed it
+                } catch (IOException | UncheckedIOException e) {
+                    logger.warn("Could not sweep {}", file, e);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes a tombstone, or puts it back as the blob when it turns out to be
+     * fresh or referenced after all. Uploads never write to a tombstone, so the
+     * checks made here cannot be overtaken by one.
+     */
+    private boolean reap(Path tombstone, String sha256, Instant olderThan, Predicate<String> referenced)
+            throws IOException {
+        if (Files.getLastModifiedTime(tombstone).toInstant().isAfter(olderThan) || referenced.test(sha256)) {
+            // An upload may have stored the same bytes since; replacing them changes nothing
+            Files.move(tombstone, tombstone.resolveSibling(sha256), StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        }
+        Files.delete(tombstone);
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    public static class StoredBlob {
+        private final String sha256;
+        private final long size;
+
+        public StoredBlob(String sha256, long size) {
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.splitapp.attachment;
+
+public class BlobTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BlobTooLargeException(long maxBytes) {
+        super("Content exceeds the limit of " + maxBytes + " bytes");
+    }
+}
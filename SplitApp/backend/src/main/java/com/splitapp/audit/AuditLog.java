@@ -0,0 +1,222 @@
+package com.splitapp.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitapp.concurrency.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only audit trail of money-moving changes, kept off the request path.
+ * Callers only put the record on a lock-free ring buffer once their
+ * transaction commits; a single writer thread drains whatever has piled up,
+ * appends it as JSON lines to the current segment file and fsyncs once per
+ * batch, so a burst of writes shares one fsync. Segments are never modified
+ * once closed; a new one is started when the current one reaches
+ * {@code segment-max-bytes}, and on every start.
+ * <p>
+ * If the writer falls so far behind that the buffer stays full for
+ * {@code offer-timeout-ms}, the record is dropped and counted rather than
+ * holding up the request.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final long RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final MpscRingBuffer<AuditRecord> buffer;
+    private final int maxBatchSize;
+    private final long segmentMaxBytes;
+    private final long pollIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    // Writer thread state
+    private FileChannel segment;
+    private long segmentIndex;
+    private long segmentSize;
+    private long nextSeq;
+
+    @Autowired
+    public AuditLog(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${splitapp.audit.dir:data/audit}") String dir,
+            @Value("${splitapp.audit.buffer-capacity:16384}") int bufferCapacity,
+            @Value("${splitapp.audit.max-batch-size:1024}") int maxBatchSize,
+            @Value("${splitapp.audit.segment-max-bytes:67108864}") long segmentMaxBytes,
+            @Value("${splitapp.audit.poll-interval-ms:10}") long pollIntervalMillis,
+            @Value("${splitapp.audit.offer-timeout-ms:100}") long offerTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.buffer = new MpscRingBuffer<>(bufferCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        this.dropped = Counter.builder("splitapp.audit.dropped")
+                .description("Audit records dropped because the writer fell behind")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(dir);
+        // Segments are named by index; sequence numbers continue from the last record written
+        for (Path file : AuditLogReader.listSegments(dir)) {
+            segmentIndex = Math.max(segmentIndex, AuditLogReader.segmentIndexOf(file));
+        }
+        nextSeq = AuditLogReader.lastSeqIn(dir, objectMapper) + 1;
+        running = true;
+        Thread thread = new Thread(this::runWriter, "audit-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Appends the record once the current transaction commits, or right away
+     * outside a transaction. Never blocks on I/O.
+     */
+    public void record(AuditRecord record) {
+        record.setAt(Instant.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(record);
+            }
+        });
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (buffer.offer(record)) {
+            return;
+        }
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        do {
+            LockSupport.unpark(writer);
+            Thread.yield();
+            if (buffer.offer(record)) {
+                return;
+            }
+        } while (running && System.nanoTime() < deadline);
+        dropped.increment();
+        logger.error("Audit buffer full, dropped {} of {} {}", record.getAction(), record.getEntityId(),
+                record.getGroupId());
+    }
+
+    private void runWriter() {
+        List<AuditRecord> batch = new ArrayList<>(maxBatchSize);
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty() && buffer.drainTo(batch, maxBatchSize) == 0) {
+                LockSupport.parkNanos(this, pollIntervalNanos);
+                continue;
+            }
+            try {
+                write(batch);
+                batch.clear();
+            } catch (IOException e) {
+                // Keep the batch and start over on a fresh segment
+                logger.error("Could not write {} audit records, retrying", batch.size(), e);
+                closeSegment();
+                if (!running) {
+                    dropped.increment(batch.size());
+                    return;
+                }
+                LockSupport.parkNanos(this, RETRY_DELAY_NANOS);
+            }
+        }
+        closeSegment();
+    }
+
+    private void write(List<AuditRecord> batch) throws IOException {
+        if (segment == null) {
+            openSegment();
+        }
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(batch.size() * 256);
+        long seq = nextSeq;
+        for (AuditRecord record : batch) {
+            record.setSeq(seq++);
+            objectMapper.writeValue(lines, record);
+            lines.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toByteArray());
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+        // One fsync for the whole batch
+        segment.force(false);
+        nextSeq = seq;
+        segmentSize += lines.size();
+        if (segmentSize >= segmentMaxBytes) {
+            closeSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentIndex++;
+        Path file = dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("Could not close audit segment {}", segmentIndex, e);
+        }
+        segment = null;
+    }
+}
@@ -0,0 +1,141 @@
+package com.splitapp.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams records back out of the audit log segments, oldest first, without
+ * loading a segment into memory. Segments last modified before the start of
+ * the requested time range are skipped unopened. A line the writer had not
+ * finished when the process died is ignored, as is a record repeated after a
+ * failed write was retried.
+ */
+@Component
+public class AuditLogReader {
+
+    private static final int TAIL_BYTES = 64 * 1024;
+
+    private final AuditLog auditLog;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public AuditLogReader(AuditLog auditLog, ObjectMapper objectMapper) {
+        this.auditLog = auditLog;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records matching every given filter; null filters match everything. The
+     * stream holds open files and must be closed.
+     *
+     * @param from inclusive
+     * @param to   exclusive
+     */
+    public Stream<AuditRecord> read(Long groupId, Long userId, Instant from, Instant to) throws IOException {
+        long[] lastSeq = {0};
+        return listSegments(auditLog.getDir()).stream()
+                .filter(file -> from == null || !lastModified(file).isBefore(from))
+                .flatMap(this::lines)
+                .map(line -> parse(objectMapper, line))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(record -> {
+                    if (record.getSeq() <= lastSeq[0]) {
+                        return false;
+                    }
+                    lastSeq[0] = record.getSeq();
+                    return true;
+                })
+                .filter(record -> groupId == null || groupId.equals(record.getGroupId()))
+                .filter(record -> userId == null || record.involves(userId))
+                .filter(record -> from == null || !record.getAt().isBefore(from))
+                .filter(record -> to == null || record.getAt().isBefore(to));
+    }
+
+    private Stream<String> lines(Path file) {
+        try {
+            return Files.lines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Optional<AuditRecord> parse(ObjectMapper objectMapper, String line) {
+        if (line.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(line, AuditRecord.class));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    static List<Path> listSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(AuditLog.SEGMENT_PREFIX) && name.endsWith(AuditLog.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static long segmentIndexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(AuditLog.SEGMENT_PREFIX.length(),
+                name.length() - AuditLog.SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Sequence number of the last complete record, found by reading the tail
+     * of the newest segments; 0 if there is none.
+     */
+    static long lastSeqIn(Path dir, ObjectMapper objectMapper) throws IOException {
+        List<Path> segments = listSegments(dir);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                long start = Math.max(0, channel.size() - TAIL_BYTES);
+                ByteBuffer tail = ByteBuffer.allocate((int) (channel.size() - start));
+                while (tail.hasRemaining()) {
+                    if (channel.read(tail, start + tail.position()) < 0) {
+                        break;
+                    }
+                }
+                String[] lines = new String(tail.array(), 0, tail.position(), StandardCharsets.UTF_8).split("\n");
+                for (int line = lines.length - 1; line >= 0; line--) {
+                    Optional<AuditRecord> record = parse(objectMapper, lines[line]);
+                    if (record.isPresent()) {
+                        return record.get().getSeq();
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,99 @@
+package com.splitapp.audit;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Settlement;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One line of the audit log: a committed change that moves money.
+ */
+@Data
+@NoArgsConstructor
+public class AuditRecord {
+
+    public enum Action {
+        EXPENSE_CREATED,
+        EXPENSE_DELETED,
+        EXPENSE_SPLIT_SETTLED,
+        SETTLEMENT_CREATED,
+        SETTLEMENT_STATUS_CHANGED
+    }
+
+    // Position in the log, assigned when the record is written
+    private long seq;
+
+    private Instant at;
+
+    private Action action;
+
+    private Long groupId;
+
+    // ID of the expense, split or settlement
+    private Long entityId;
+
+    // Everyone whose balance the change affects: payer and split users, or both sides of a settlement
+    private List<Long> userIds = new ArrayList<>();
+
+    private BigDecimal amount;
+
+    private String currency;
+
+    private String detail;
+
+    public boolean involves(Long userId) {
+        return userIds.contains(userId);
+    }
+
+    public static AuditRecord forExpense(Action action, Expense expense, List<ExpenseSplit> splits) {
+        AuditRecord record = new AuditRecord();
+        record.setAction(action);
+        record.setGroupId(expense.getGroup().getId());
+        record.setEntityId(expense.getId());
+        record.getUserIds().add(expense.getPaidBy().getId());
+        for (ExpenseSplit split : splits) {
+            Long userId = split.getUser().getId();
+            if (!record.getUserIds().contains(userId)) {
+                record.getUserIds().add(userId);
+            }
+        }
+        record.setAmount(expense.getAmount());
+        record.setCurrency(expense.getCurrency());
+        return record;
+    }
+
+    public static AuditRecord forSplitSettled(ExpenseSplit split) {
+        Expense expense = split.getExpense();
+        AuditRecord record = new AuditRecord();
+        record.setAction(Action.EXPENSE_SPLIT_SETTLED);
+        record.setGroupId(expense.getGroup().getId());
+        record.setEntityId(split.getId());
+        record.getUserIds().add(split.getUser().getId());
+        if (!split.getUser().getId().equals(expense.getPaidBy().getId())) {
+            record.getUserIds().add(expense.getPaidBy().getId());
+        }
+        record.setAmount(split.getAmount());
+        record.setCurrency(expense.getCurrency());
+        record.setDetail("expense " + expense.getId());
+        return record;
+    }
+
+    public static AuditRecord forSettlement(Action action, Settlement settlement, String detail) {
+        AuditRecord record = new AuditRecord();
+        record.setAction(action);
+        record.setGroupId(settlement.getGroup().getId());
+        record.setEntityId(settlement.getId());
+        record.setUserIds(new ArrayList<>(Arrays.asList(
+                settlement.getFromUser().getId(), settlement.getToUser().getId())));
+        record.setAmount(settlement.getAmount());
+        record.setDetail(detail);
+        return record;
+    }
+}
@@ -0,0 +1,70 @@
+package com.splitapp.concurrency;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements {@link LocksGroup}. Ordered inside the shard routing and the
+ * optimistic lock retry, so a row-keyed lookup reads the right shard and each
+ * retry waits its turn again, but ahead of the transaction interceptor.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class GroupLockAspect {
+
+    private final GroupLockRegistry groupLockRegistry;
+    private final BeanFactoryResolver beanResolver;
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final ConcurrentHashMap<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GroupLockAspect(GroupLockRegistry groupLockRegistry, BeanFactory beanFactory) {
+        this.groupLockRegistry = groupLockRegistry;
+        this.beanResolver = new BeanFactoryResolver(beanFactory);
+    }
+
+    @Around("@annotation(locksGroup)")
+    public Object lockAroundTransaction(ProceedingJoinPoint joinPoint, LocksGroup locksGroup) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Object value = evaluate(joinPoint, locksGroup.value());
+        if (value == null) {
+            return joinPoint.proceed();
+        }
+
+        Long groupId = ((Number) value).longValue();
+        groupLockRegistry.lock(groupId);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            groupLockRegistry.unlock(groupId);
+        }
+    }
+
+    private Object evaluate(ProceedingJoinPoint joinPoint, String expression) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                joinPoint.getTarget(), signature.getMethod(), joinPoint.getArgs(), parameterNames);
+        context.setBeanResolver(beanResolver);
+        return expressions.computeIfAbsent(expression, parser::parseExpression).getValue(context);
+    }
+}
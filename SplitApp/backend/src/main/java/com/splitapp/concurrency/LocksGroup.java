@@ -0,0 +1,24 @@
+package com.splitapp.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Holds the group's lock around the annotated method's whole transaction,
+ * taking it before the transaction begins, so a writer waiting its turn holds
+ * no connection and no row locks. The value is SpEL over the method arguments
+ * and may call beans, e.g. {@code "@expenseRepository.findGroupIdById(#id)"};
+ * a null result takes no lock.
+ * <p>
+ * Called inside a caller's transaction, the method relies on its own
+ * {@link GroupLockRegistry#lockForTransaction} call instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LocksGroup {
+
+    /** Expression yielding the id of the group to lock. */
+    String value();
+}
@@ -0,0 +1,90 @@
+package com.splitapp.concurrency;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers
+ * claim a slot by advancing the head with a CAS and then publish into it; the
+ * consumer takes published slots in order and clears them. A slot that is
+ * claimed but not yet published stops the consumer until its producer
+ * catches up, so elements come out in the order their slots were claimed.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    // Next slot to claim
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to consume; written by the consumer only
+    private volatile long tail;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * @return false, without blocking, if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long claimed = head.get();
+            if (claimed - tail >= capacity) {
+                return false;
+            }
+            if (head.compareAndSet(claimed, claimed + 1)) {
+                slots.lazySet((int) claimed & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to max published elements into the sink. Consumer thread only.
+     *
+     * @return number of elements moved
+     */
+    public int drainTo(List<? super E> sink, int max) {
+        long next = tail;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) next & mask;
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            sink.add(element);
+            next++;
+            drained++;
+        }
+        // Publishes the cleared slots to producers
+        tail = next;
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail;
+    }
+
+    public int size() {
+        return (int) (head.get() - tail);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
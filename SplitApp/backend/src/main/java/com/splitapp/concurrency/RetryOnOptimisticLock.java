@@ -0,0 +1,20 @@
+package com.splitapp.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs a transactional method when its commit loses an optimistic lock race.
+ * Each attempt starts a fresh transaction, so it re-reads the current row state.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+
+    int maxAttempts() default 3;
+
+    // Upper bound of the first backoff; doubled on every further attempt
+    long backoffMillis() default 20;
+}
@@ -0,0 +1,49 @@
+package com.splitapp.config;
+
+import com.splitapp.admission.AdmissionControlFilter;
+import com.splitapp.admission.AdmissionProperties;
+import com.splitapp.admission.ConnectionPoolPressure;
+import com.splitapp.admission.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.cors.CorsConfigurationSource;
+
+/**
+ * Rate limits API clients and sheds load while the connection pool is
+ * saturated; see {@link AdmissionControlFilter}. Registered right after the
+ * Spring Security chain, so clients are keyed by the principal it establishes
+ * and rejections already carry its CORS headers, but still ahead of any
+ * controller or database work.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "splitapp.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Bean
+    public TokenBucketRateLimiter admissionRateLimiter(AdmissionProperties properties) {
+        return new TokenBucketRateLimiter(properties.getCapacity(), properties.getRefillPerSecond(),
+                properties.getMaxClients());
+    }
+
+    @Bean
+    public ConnectionPoolPressure connectionPoolPressure(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        return new ConnectionPoolPressure(meterRegistry, properties.getShedAcquireWaitMs(),
+                properties.getShedSampleIntervalMs());
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            TokenBucketRateLimiter admissionRateLimiter, ConnectionPoolPressure connectionPoolPressure,
+            AdmissionProperties properties, MeterRegistry meterRegistry,
+            CorsConfigurationSource corsConfigurationSource) {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(admissionRateLimiter, connectionPoolPressure, properties, meterRegistry,
+                        corsConfigurationSource));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
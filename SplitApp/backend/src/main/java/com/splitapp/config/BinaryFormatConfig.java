@@ -0,0 +1,43 @@
+package com.splitapp.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile ({@code application/x-jackson-smile}) and CBOR
+ * ({@code application/cbor}) alongside JSON, for clients that ask for them in
+ * Accept or send them as Content-Type. Both mappers come from the same builder
+ * as the JSON one, so they carry the same modules and spring.jackson settings.
+ * These beans take the place of Spring MVC's default converters of the same
+ * type, which come after the JSON converter, so a request without a
+ * preference still gets JSON. ETags are told apart per format by
+ * {@link FormatETagFilter}.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+                builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(
+                builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public FilterRegistrationBean<FormatETagFilter> formatETagFilter() {
+        FilterRegistrationBean<FormatETagFilter> registration = new FilterRegistrationBean<>(new FormatETagFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,35 @@
+package com.splitapp.config;
+
+import com.splitapp.routing.ReplicaRoutingContext;
+import com.splitapp.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Bounded pool for independent read-only sub-queries fanned out by a single
+     * request. When the queue is full the calling thread runs the task itself,
+     * so a burst degrades to sequential execution instead of failing. Tasks keep
+     * the caller's replica routing hint and shard.
+     */
+    @Bean(name = "queryExecutor")
+    public ThreadPoolTaskExecutor queryExecutor(
+            @Value("${splitapp.query-executor.pool-size:8}") int poolSize,
+            @Value("${splitapp.query-executor.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("query-");
+        executor.setTaskDecorator(task -> ShardContext.propagate(ReplicaRoutingContext.propagate(task)));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
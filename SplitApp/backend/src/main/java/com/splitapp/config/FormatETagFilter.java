@@ -0,0 +1,173 @@
+package com.splitapp.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Keeps the JSON, Smile and CBOR representations of a resource apart in
+ * caches. Controllers compute one ETag per resource state; this filter adds
+ * the response format to every ETag it sends, together with
+ * {@code Vary: Accept}, and strips it again from If-None-Match and If-Range,
+ * so a tag only matches when it was issued for the format being asked for.
+ * <p>
+ * The format is chosen from Accept the same way as the message converters
+ * do: the most preferred of the three, JSON when none is named.
+ */
+public class FormatETagFilter extends OncePerRequestFilter {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String suffix = "-" + formatOf(request.getHeader(HttpHeaders.ACCEPT));
+        chain.doFilter(new IfNoneMatchRequest(request, suffix), new ETagResponse(response, suffix));
+    }
+
+    private static String formatOf(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return "json";
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "json";
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "json";
+            }
+            if (mediaType.isCompatibleWith(SMILE)) {
+                return "smile";
+            }
+            if (mediaType.isCompatibleWith(CBOR)) {
+                return "cbor";
+            }
+        }
+        return "json";
+    }
+
+    // Inserts the suffix before the closing quote: "g1-v2" becomes "g1-v2-cbor"
+    private static String withSuffix(String eTag, String suffix) {
+        return eTag.endsWith("\"") ? eTag.substring(0, eTag.length() - 1) + suffix + "\"" : eTag + suffix;
+    }
+
+    private static final class IfNoneMatchRequest extends HttpServletRequestWrapper {
+        private final String suffix;
+
+        IfNoneMatchRequest(HttpServletRequest request, String suffix) {
+            super(request);
+            this.suffix = suffix + "\"";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.IF_RANGE.equalsIgnoreCase(name)) {
+                return strippedIfRange(super.getHeader(name));
+            }
+            if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+                return super.getHeader(name);
+            }
+            List<String> tags = stripped(super.getHeaders(name));
+            return tags.isEmpty() ? null : String.join(", ", tags);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.IF_RANGE.equalsIgnoreCase(name)) {
+                String ifRange = getHeader(name);
+                return ifRange == null ? Collections.emptyEnumeration() : Collections.enumeration(
+                        Collections.singletonList(ifRange));
+            }
+            if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+                return super.getHeaders(name);
+            }
+            return Collections.enumeration(stripped(super.getHeaders(name)));
+        }
+
+        // A date, or a tag of another format, is passed on as it is and simply fails to match
+        private String strippedIfRange(String value) {
+            if (value == null) {
+                return null;
+            }
+            String tag = value.trim();
+            return tag.endsWith(suffix) ? tag.substring(0, tag.length() - suffix.length()) + "\"" : value;
+        }
+
+        // Tags issued for another format, or before formats were told apart, are dropped
+        private List<String> stripped(Enumeration<String> values) {
+            List<String> tags = new ArrayList<>();
+            while (values != null && values.hasMoreElements()) {
+                for (String tag : values.nextElement().split(",")) {
+                    tag = tag.trim();
+                    if ("*".equals(tag)) {
+                        tags.add(tag);
+                    } else if (tag.endsWith(suffix)) {
+                        tags.add(tag.substring(0, tag.length() - suffix.length()) + "\"");
+                    }
+                }
+            }
+            return tags;
+        }
+    }
+
+    private static final class ETagResponse extends HttpServletResponseWrapper {
+        private final String suffix;
+
+        ETagResponse(HttpServletResponse response, String suffix) {
+            super(response);
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(name) && value != null) {
+                super.setHeader(name, withSuffix(value, suffix));
+                varyOnAccept();
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(name) && value != null) {
+                super.setHeader(name, withSuffix(value, suffix));
+                varyOnAccept();
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        private void varyOnAccept() {
+            for (String vary : getHeaders(HttpHeaders.VARY)) {
+                for (String header : vary.split(",")) {
+                    if (header.trim().equalsIgnoreCase(HttpHeaders.ACCEPT) || "*".equals(header.trim())) {
+                        return;
+                    }
+                }
+            }
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.splitapp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * The local profile runs the primary and the replica as two separate embedded
+ * H2 databases. Hibernate only creates the schema on the primary, so it is
+ * copied to the replica at startup. Data is not replicated: anything read from
+ * the replica locally comes back empty, which makes the routing easy to see.
+ */
+@Component
+@Profile("local")
+public class LocalReplicaSchemaInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalReplicaSchemaInitializer.class);
+
+    private final DataSource primaryDataSource;
+    private final DataSource replicaDataSource;
+
+    public LocalReplicaSchemaInitializer(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> statements = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        for (String statement : statements) {
+            if (!statement.startsWith("CREATE USER")) {
+                replica.execute(statement);
+            }
+        }
+        logger.info("Copied {} schema statements to the local replica", statements.size());
+    }
+}
@@ -0,0 +1,42 @@
+package com.splitapp.config;
+
+import com.splitapp.sharding.ShardRouter;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The sharded profile runs every shard as its own embedded H2 database.
+ * Hibernate only creates the schema on shard 0, so it is copied to the other
+ * shards at startup, before their id ranges are set.
+ */
+@Component
+@Profile("sharded")
+@Order(1)
+public class LocalShardSchemaInitializer implements ApplicationRunner {
+
+    private final ShardRouter shardRouter;
+
+    public LocalShardSchemaInitializer(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> statements = new JdbcTemplate(shardRouter.getShardDataSource(0))
+                .queryForList("SCRIPT NODATA", String.class);
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            JdbcTemplate target = new JdbcTemplate(shardRouter.getShardDataSource(shard));
+            for (String statement : statements) {
+                if (!statement.startsWith("CREATE USER")) {
+                    target.execute(statement);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.splitapp.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans kept eager when {@code spring.main.lazy-initialization} is on: the
+     * controllers, so the first request does not also build the service and
+     * repository graph behind it, and every bean with a {@code @Scheduled}
+     * method, whose schedules are only registered once the bean exists.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter hotBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (AnnotatedElementUtils.hasAnnotation(beanType, RestController.class) || hasScheduledMethod(beanType));
+    }
+
+    private static boolean hasScheduledMethod(Class<?> beanType) {
+        AtomicBoolean scheduled = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(beanType, method -> scheduled.set(true),
+                method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+        return scheduled.get();
+    }
+
+    /**
+     * Training run for the class-data sharing archive built into the image:
+     * exits as soon as the application has started, so the JVM can record
+     * every class a startup loads.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "splitapp.startup", name = "exit-on-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.splitapp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitapp.audit.AuditLogReader;
+import com.splitapp.audit.AuditRecord;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/audit")
+@CrossOrigin(origins = "*")
+@Tag(name = "Audit", description = "Audit log APIs")
+public class AuditController {
+
+    private static final int MAX_LIMIT = 100000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AuditLogReader auditLogReader;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public AuditController(AuditLogReader auditLogReader, ObjectMapper objectMapper) {
+        this.auditLogReader = auditLogReader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(summary = "Read the audit log",
+            description = "Streams the audit records of money-moving changes, oldest first, one JSON object "
+                    + "per line, filtered by group, user and time range")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "The matching records, as newline-delimited JSON"),
+        @ApiResponse(responseCode = "400", description = "Invalid time range")
+    })
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getAuditRecords(
+            @Parameter(description = "Only changes to this group") @RequestParam(required = false) Long groupId,
+            @Parameter(description = "Only changes affecting this user") @RequestParam(required = false) Long userId,
+            @Parameter(description = "Start of the time range (inclusive), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time range (exclusive), ISO-8601")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Maximum number of records") @RequestParam(defaultValue = "1000") int limit) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int cappedLimit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        StreamingResponseBody body = out -> {
+            try (Stream<AuditRecord> records = auditLogReader.read(groupId, userId, from, to).limit(cappedLimit)) {
+                Iterator<AuditRecord> iterator = records.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
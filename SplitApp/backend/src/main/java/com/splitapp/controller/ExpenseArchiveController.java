@@ -0,0 +1,77 @@
+package com.splitapp.controller;
+
+import com.splitapp.model.ArchivedExpense;
+import com.splitapp.model.ArchivedExpenseSplit;
+import com.splitapp.model.ExpenseMonthlySummary;
+import com.splitapp.service.ExpenseArchiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/expenses/archive")
+@CrossOrigin(origins = "*")
+@Tag(name = "Expense Archive", description = "Read access to archived expense history")
+public class ExpenseArchiveController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ExpenseArchiveService expenseArchiveService;
+
+    @Autowired
+    public ExpenseArchiveController(ExpenseArchiveService expenseArchiveService) {
+        this.expenseArchiveService = expenseArchiveService;
+    }
+
+    @Operation(summary = "Get archived expenses by group",
+            description = "Retrieves a page of archived expenses of a group, newest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved archived expenses",
+                content = @Content(schema = @Schema(implementation = ArchivedExpense.class)))
+    })
+    @GetMapping("/group/{groupId}")
+    public ResponseEntity<Page<ArchivedExpense>> getArchivedExpensesByGroup(
+            @Parameter(description = "ID of the group") @PathVariable Long groupId,
+            @Parameter(description = "Zero-based page index") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by(Sort.Direction.DESC, "expenseDate"));
+        return ResponseEntity.ok(expenseArchiveService.getArchivedExpensesByGroup(groupId, pageable));
+    }
+
+    @Operation(summary = "Get monthly summaries by group",
+            description = "Retrieves the per-month totals of archived expenses of a group")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved monthly summaries",
+                content = @Content(schema = @Schema(implementation = ExpenseMonthlySummary.class)))
+    })
+    @GetMapping("/group/{groupId}/summaries")
+    public ResponseEntity<List<ExpenseMonthlySummary>> getMonthlySummaries(
+            @Parameter(description = "ID of the group") @PathVariable Long groupId) {
+        return ResponseEntity.ok(expenseArchiveService.getMonthlySummaries(groupId));
+    }
+
+    @Operation(summary = "Get archived splits of an expense",
+            description = "Retrieves the splits of an archived expense")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved archived splits",
+                content = @Content(schema = @Schema(implementation = ArchivedExpenseSplit.class)))
+    })
+    @GetMapping("/{expenseId}/splits")
+    public ResponseEntity<List<ArchivedExpenseSplit>> getArchivedExpenseSplits(
+            @Parameter(description = "ID of the archived expense") @PathVariable Long expenseId) {
+        return ResponseEntity.ok(expenseArchiveService.getArchivedExpenseSplits(expenseId));
+    }
+}
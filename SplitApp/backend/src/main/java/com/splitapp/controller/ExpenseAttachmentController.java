@@ -0,0 +1,128 @@
+package com.splitapp.controller;
+
+import com.splitapp.attachment.BlobTooLargeException;
+import com.splitapp.attachment.FileRangeSender;
+import com.splitapp.model.ExpenseAttachment;
+import com.splitapp.service.ExpenseAttachmentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/expenses/{expenseId}/attachments")
+@CrossOrigin(origins = "*")
+@Tag(name = "Expense Attachment", description = "Receipt attachment APIs")
+public class ExpenseAttachmentController {
+
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+
+    private final ExpenseAttachmentService expenseAttachmentService;
+
+    @Autowired
+    public ExpenseAttachmentController(ExpenseAttachmentService expenseAttachmentService) {
+        this.expenseAttachmentService = expenseAttachmentService;
+    }
+
+    @Operation(summary = "Upload an attachment",
+            description = "Attaches the request body, sent as is with its own Content-Type (not multipart), "
+                    + "to an expense. Identical files are stored once")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Attachment created successfully",
+                content = @Content(schema = @Schema(implementation = ExpenseAttachment.class))),
+        @ApiResponse(responseCode = "400", description = "Empty body"),
+        @ApiResponse(responseCode = "404", description = "Expense not found"),
+        @ApiResponse(responseCode = "413", description = "Attachment too large"),
+        @ApiResponse(responseCode = "415", description = "Content type not accepted")
+    })
+    @PostMapping
+    public ResponseEntity<ExpenseAttachment> uploadAttachment(
+            @Parameter(description = "ID of the expense") @PathVariable Long expenseId,
+            @Parameter(description = "Original file name") @RequestParam(required = false) String fileName,
+            HttpServletRequest request) throws IOException {
+        String contentType = expenseAttachmentService.normalizeContentType(request.getContentType());
+        if (contentType == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        if (request.getContentLengthLong() > expenseAttachmentService.getMaxSizeBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        if (request.getContentLengthLong() == 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (fileName != null && fileName.length() > MAX_FILE_NAME_LENGTH) {
+            fileName = fileName.substring(0, MAX_FILE_NAME_LENGTH);
+        }
+        try {
+            return expenseAttachmentService.upload(expenseId, contentType, fileName, request.getInputStream())
+                    .map(attachment -> ResponseEntity.status(HttpStatus.CREATED).body(attachment))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (BlobTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+    }
+
+    @Operation(summary = "Get the attachments of an expense")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the attachments",
+                content = @Content(schema = @Schema(implementation = ExpenseAttachment.class)))
+    })
+    @GetMapping
+    public ResponseEntity<List<ExpenseAttachment>> getAttachments(
+            @Parameter(description = "ID of the expense") @PathVariable Long expenseId) {
+        return ResponseEntity.ok(expenseAttachmentService.getAttachments(expenseId));
+    }
+
+    @Operation(summary = "Download an attachment",
+            description = "Streams the file. Supports a single byte range (Range, If-Range) and revalidation "
+                    + "with If-None-Match against the strong ETag, which is the file's SHA-256")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "The file"),
+        @ApiResponse(responseCode = "206", description = "The requested range of the file"),
+        @ApiResponse(responseCode = "304", description = "The client's copy is current"),
+        @ApiResponse(responseCode = "404", description = "Attachment not found"),
+        @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @GetMapping("/{attachmentId}")
+    public void downloadAttachment(
+            @Parameter(description = "ID of the expense") @PathVariable Long expenseId,
+            @Parameter(description = "ID of the attachment") @PathVariable Long attachmentId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ExpenseAttachment> attachment = expenseAttachmentService.getAttachment(expenseId, attachmentId);
+        if (!attachment.isPresent()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ExpenseAttachment found = attachment.get();
+        FileRangeSender.send(expenseAttachmentService.getContentPath(found), found.getContentType(),
+                found.getFileName(), found.getSha256(), request, response);
+    }
+
+    @Operation(summary = "Delete an attachment")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Attachment deleted successfully"),
+        @ApiResponse(responseCode = "404", description = "Attachment not found")
+    })
+    @DeleteMapping("/{attachmentId}")
+    public ResponseEntity<Void> deleteAttachment(
+            @Parameter(description = "ID of the expense") @PathVariable Long expenseId,
+            @Parameter(description = "ID of the attachment") @PathVariable Long attachmentId) {
+        if (!expenseAttachmentService.deleteAttachment(expenseId, attachmentId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,18 @@
 package com.splitapp.controller;
 
+import com.splitapp.dto.ExpenseSearchHit;
 import com.splitapp.model.Expense;
 import com.splitapp.model.ExpenseSplit;
-import com.splitapp.model.Group;
-import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.service.ExpenseGroupCommitter;
+import com.splitapp.service.ExpenseSearchService;
 import com.splitapp.service.ExpenseService;
+import com.splitapp.service.GroupCommitTimeoutException;
 import com.splitapp.service.GroupService;
+import com.splitapp.service.GroupVersionService;
+import com.splitapp.service.IdempotencyService;
 import com.splitapp.service.UserService;
+import com.splitapp.sharding.RouteToShard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,9 +24,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -29,18 +38,32 @@ import java.util.Optional;
 @Tag(name = "Expense", description = "Expense management APIs")
 public class ExpenseController {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final ExpenseService expenseService;
     private final UserService userService;
     private final GroupService groupService;
+    private final GroupVersionService groupVersionService;
+    private final IdempotencyService idempotencyService;
+    private final ExpenseGroupCommitter expenseGroupCommitter;
+    private final ExpenseSearchService expenseSearchService;
 
     @Autowired
     public ExpenseController(
             ExpenseService expenseService,
             UserService userService,
-            GroupService groupService) {
+            GroupService groupService,
+            GroupVersionService groupVersionService,
+            IdempotencyService idempotencyService,
+            ExpenseGroupCommitter expenseGroupCommitter,
+            ExpenseSearchService expenseSearchService) {
         this.expenseService = expenseService;
         this.userService = userService;
         this.groupService = groupService;
+        this.groupVersionService = groupVersionService;
+        this.idempotencyService = idempotencyService;
+        this.expenseGroupCommitter = expenseGroupCommitter;
+        this.expenseSearchService = expenseSearchService;
     }
 
     @Operation(summary = "Get all expenses", description = "Retrieves a list of all expenses in the system")
@@ -53,6 +76,21 @@ public class ExpenseController {
         return ResponseEntity.ok(expenseService.getAllExpenses());
     }
 
+    @Operation(summary = "Search expenses",
+            description = "Full-text search over expense descriptions, amounts and payer names, best matches first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully searched expenses",
+                content = @Content(schema = @Schema(implementation = ExpenseSearchHit.class)))
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<ExpenseSearchHit>> searchExpenses(
+            @Parameter(description = "Search terms") @RequestParam String q,
+            @Parameter(description = "Only search this group") @RequestParam(required = false) Long groupId,
+            @Parameter(description = "Maximum number of hits") @RequestParam(defaultValue = "20") int limit) {
+        int hits = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return ResponseEntity.ok(expenseSearchService.search(q, groupId, hits));
+    }
+
     @Operation(summary = "Get expense by ID", description = "Retrieves an expense by its ID")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the expense",
@@ -71,16 +109,91 @@ public class ExpenseController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved expenses for the group",
                 content = @Content(schema = @Schema(implementation = Expense.class))),
+        @ApiResponse(responseCode = "304", description = "Expenses unchanged since the supplied ETag"),
         @ApiResponse(responseCode = "404", description = "Group not found")
     })
     @GetMapping("/group/{groupId}")
     public ResponseEntity<List<Expense>> getExpensesByGroup(
-            @Parameter(description = "ID of the group") @PathVariable Long groupId) {
-        Optional<Group> group = groupService.getGroupById(groupId);
-        if (group.isPresent()) {
-            return ResponseEntity.ok(expenseService.getExpensesByGroup(group.get()));
+            @Parameter(description = "ID of the group") @PathVariable Long groupId,
+            WebRequest request) {
+        if (!groupService.existsById(groupId)) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        String eTag = groupVersionService.getETag(groupId);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(expenseService.getExpensesByGroup(groupId));
+    }
+
+    @Operation(summary = "Get selected fields of all expenses",
+            description = "Retrieves only the requested fields of every expense, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the expenses"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list")
+    })
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectAllExpenses(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,description,amount,paidBy.name")
+            @RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(expenseService.selectAllExpenses(Projection.EXPENSE.parse(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get selected fields of expense by ID",
+            description = "Retrieves only the requested fields of an expense")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the expense"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "Expense not found")
+    })
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> selectExpenseById(
+            @Parameter(description = "ID of the expense to retrieve") @PathVariable Long id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,description,amount,paidBy.name")
+            @RequestParam String fields) {
+        List<String> selected;
+        try {
+            selected = Projection.EXPENSE.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return expenseService.selectExpenseById(id, selected)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get selected fields of expenses by group",
+            description = "Retrieves only the requested fields of the group's expenses, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved expenses for the group"),
+        @ApiResponse(responseCode = "304", description = "Expenses unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping(value = "/group/{groupId}", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectExpensesByGroup(
+            @Parameter(description = "ID of the group") @PathVariable Long groupId,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,description,amount,paidBy.name")
+            @RequestParam String fields,
+            WebRequest request) {
+        List<String> selected;
+        try {
+            selected = Projection.EXPENSE.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!groupService.existsById(groupId)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(groupId, selected);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(expenseService.selectExpensesByGroup(groupId, selected));
     }
 
     @Operation(summary = "Get expenses by payer", description = "Retrieves all expenses paid by a specific user")
@@ -92,9 +205,8 @@ public class ExpenseController {
     @GetMapping("/paidby/{userId}")
     public ResponseEntity<List<Expense>> getExpensesByPaidBy(
             @Parameter(description = "ID of the user who paid") @PathVariable Long userId) {
-        Optional<User> user = userService.getUserById(userId);
-        if (user.isPresent()) {
-            return ResponseEntity.ok(expenseService.getExpensesByPaidBy(user.get()));
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(expenseService.getExpensesByPaidBy(userId));
         }
         return ResponseEntity.notFound().build();
     }
@@ -103,18 +215,27 @@ public class ExpenseController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Expense successfully created",
                 content = @Content(schema = @Schema(implementation = Expense.class))),
-        @ApiResponse(responseCode = "400", description = "Invalid input data")
+        @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "422", description = "Idempotency key reused for a different request"),
+        @ApiResponse(responseCode = "503", description = "Expense could not be committed in time")
     })
     @PostMapping
+    @RouteToShard(group = "#expense.group?.id")
     public ResponseEntity<?> createExpense(
+            @Parameter(description = "Key that makes retries of this request safe")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Parameter(description = "Expense details") @Valid @RequestBody Expense expense, 
             @Parameter(description = "Expense splits among users") @RequestBody List<ExpenseSplit> splits) {
-        try {
-            Expense createdExpense = expenseService.createExpense(expense, splits);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdExpense);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        return idempotencyService.execute("POST /api/expenses", idempotencyKey, Arrays.asList(expense, splits), () -> {
+            try {
+                Expense createdExpense = expenseGroupCommitter.createExpense(expense, splits);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdExpense);
+            } catch (GroupCommitTimeoutException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        });
     }
 
     @Operation(summary = "Delete an expense", description = "Deletes an expense by its ID")
@@ -125,6 +246,9 @@ public class ExpenseController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteExpense(
             @Parameter(description = "ID of the expense to delete") @PathVariable Long id) {
+        if (!expenseService.getExpenseById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
         expenseService.deleteExpense(id);
         return ResponseEntity.noContent().build();
     }
@@ -154,9 +278,8 @@ public class ExpenseController {
     @GetMapping("/splits/user/{userId}")
     public ResponseEntity<List<ExpenseSplit>> getExpenseSplitsByUser(
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
-        Optional<User> user = userService.getUserById(userId);
-        if (user.isPresent()) {
-            return ResponseEntity.ok(expenseService.getExpenseSplitsByUser(user.get()));
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(expenseService.getExpenseSplitsByUser(userId));
         }
         return ResponseEntity.notFound().build();
     }
@@ -170,9 +293,8 @@ public class ExpenseController {
     @GetMapping("/splits/user/{userId}/unsettled")
     public ResponseEntity<List<ExpenseSplit>> getUnsettledExpenseSplitsByUser(
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
-        Optional<User> user = userService.getUserById(userId);
-        if (user.isPresent()) {
-            return ResponseEntity.ok(expenseService.getUnsettledExpenseSplitsByUser(user.get()));
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(expenseService.getUnsettledExpenseSplitsByUser(userId));
         }
         return ResponseEntity.notFound().build();
     }
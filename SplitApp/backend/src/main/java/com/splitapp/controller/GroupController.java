@@ -1,8 +1,18 @@
 package com.splitapp.controller;
 
+import com.splitapp.dto.DeletionProgress;
+import com.splitapp.dto.GroupDetail;
+import com.splitapp.dto.MemberBalance;
+import com.splitapp.dto.MonthlySpend;
 import com.splitapp.model.Group;
 import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.service.BalanceService;
+import com.splitapp.service.DeletionService;
+import com.splitapp.service.GroupDetailService;
 import com.splitapp.service.GroupService;
+import com.splitapp.service.GroupVersionService;
+import com.splitapp.service.SpendAnalyticsService;
 import com.splitapp.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,12 +22,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/groups")
@@ -25,13 +39,33 @@ import java.util.List;
 @Tag(name = "Group", description = "Group management APIs")
 public class GroupController {
 
+    private static final int MAX_DETAIL_ITEMS = 100;
+    private static final int MAX_BATCH_IDS = 100;
+
     private final GroupService groupService;
     private final UserService userService;
+    private final BalanceService balanceService;
+    private final GroupDetailService groupDetailService;
+    private final GroupVersionService groupVersionService;
+    private final SpendAnalyticsService spendAnalyticsService;
+    private final DeletionService deletionService;
 
     @Autowired
-    public GroupController(GroupService groupService, UserService userService) {
+    public GroupController(
+            GroupService groupService,
+            UserService userService,
+            BalanceService balanceService,
+            GroupDetailService groupDetailService,
+            GroupVersionService groupVersionService,
+            SpendAnalyticsService spendAnalyticsService,
+            DeletionService deletionService) {
         this.groupService = groupService;
         this.userService = userService;
+        this.balanceService = balanceService;
+        this.groupDetailService = groupDetailService;
+        this.groupVersionService = groupVersionService;
+        this.spendAnalyticsService = spendAnalyticsService;
+        this.deletionService = deletionService;
     }
 
     @Operation(summary = "Get all groups", description = "Retrieves a list of all groups in the system")
@@ -44,20 +78,171 @@ public class GroupController {
         return ResponseEntity.ok(groupService.getAllGroups());
     }
 
+    @Operation(summary = "Get groups by IDs",
+            description = "Retrieves the groups with the given IDs in one query, skipping unknown IDs")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the groups",
+                content = @Content(schema = @Schema(implementation = Group.class))),
+        @ApiResponse(responseCode = "400", description = "No IDs, or more than " + MAX_BATCH_IDS)
+    })
+    @GetMapping(params = {"ids", "!fields"})
+    public ResponseEntity<List<Group>> getGroupsByIds(
+            @Parameter(description = "Comma-separated IDs, e.g. 1,2,3") @RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(groupService.getGroupsByIds(ids));
+    }
+
     @Operation(summary = "Get group by ID", description = "Retrieves a group by its ID")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the group",
                 content = @Content(schema = @Schema(implementation = Group.class))),
+        @ApiResponse(responseCode = "304", description = "Group unchanged since the supplied ETag"),
         @ApiResponse(responseCode = "404", description = "Group not found")
     })
     @GetMapping("/{id}")
     public ResponseEntity<Group> getGroupById(
-            @Parameter(description = "ID of the group to retrieve") @PathVariable Long id) {
+            @Parameter(description = "ID of the group to retrieve") @PathVariable Long id,
+            WebRequest request) {
+        if (!groupService.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         return groupService.getGroupById(id)
+                .map(group -> ResponseEntity.ok().eTag(eTag).body(group))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get selected fields of all groups",
+            description = "Retrieves only the requested fields of every group, or of those listed in ids, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the groups"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list")
+    })
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectAllGroups(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,baseCurrency,creator.name")
+            @RequestParam String fields,
+            @Parameter(description = "Only return the groups with these IDs, at most " + MAX_BATCH_IDS)
+            @RequestParam(required = false) List<Long> ids) {
+        if (ids != null && (ids.isEmpty() || ids.size() > MAX_BATCH_IDS)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            List<String> selected = Projection.GROUP.parse(fields);
+            return ResponseEntity.ok(ids == null
+                    ? groupService.selectAllGroups(selected)
+                    : groupService.selectGroupsByIds(ids, selected));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get selected fields of group by ID",
+            description = "Retrieves only the requested fields of a group")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the group"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> selectGroupById(
+            @Parameter(description = "ID of the group to retrieve") @PathVariable Long id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,baseCurrency,creator.name")
+            @RequestParam String fields) {
+        List<String> selected;
+        try {
+            selected = Projection.GROUP.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return groupService.selectGroupById(id, selected)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @Operation(summary = "Get group balances",
+            description = "Retrieves the net balance of every member of a group, optionally as of a past point in time")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the group balances",
+                content = @Content(schema = @Schema(implementation = MemberBalance.class))),
+        @ApiResponse(responseCode = "304", description = "Balances unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping("/{id}/balances")
+    public ResponseEntity<List<MemberBalance>> getGroupBalances(
+            @Parameter(description = "ID of the group") @PathVariable Long id,
+            @Parameter(description = "Point in time to compute the balances for (ISO date-time)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            WebRequest request) {
+        if (!groupService.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return groupService.getGroupById(id)
+                .map(group -> ResponseEntity.ok().eTag(eTag).body(asOf == null
+                        ? balanceService.getGroupBalances(group)
+                        : balanceService.getGroupBalancesAsOf(group, asOf)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get group detail",
+            description = "Retrieves the group, its latest expenses and settlements, and member balances in one call")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the group detail",
+                content = @Content(schema = @Schema(implementation = GroupDetail.class))),
+        @ApiResponse(responseCode = "304", description = "Group detail unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping("/{id}/detail")
+    public ResponseEntity<GroupDetail> getGroupDetail(
+            @Parameter(description = "ID of the group") @PathVariable Long id,
+            @Parameter(description = "Maximum number of expenses to include") @RequestParam(defaultValue = "20") int expenseLimit,
+            @Parameter(description = "Maximum number of settlements to include") @RequestParam(defaultValue = "10") int settlementLimit,
+            WebRequest request) {
+        if (!groupService.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        int expenses = Math.max(1, Math.min(expenseLimit, MAX_DETAIL_ITEMS));
+        int settlements = Math.max(1, Math.min(settlementLimit, MAX_DETAIL_ITEMS));
+        return groupDetailService.getGroupDetail(id, expenses, settlements)
+                .map(detail -> ResponseEntity.ok().eTag(eTag).body(detail))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get group spending stats",
+            description = "Retrieves the spend of a group per month, newest first, broken down by payer")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the group spending stats",
+                content = @Content(schema = @Schema(implementation = MonthlySpend.class))),
+        @ApiResponse(responseCode = "304", description = "Stats unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<List<MonthlySpend>> getGroupStats(
+            @Parameter(description = "ID of the group") @PathVariable Long id,
+            WebRequest request) {
+        if (!groupService.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(spendAnalyticsService.getGroupStats(id));
+    }
+
     @Operation(summary = "Get groups by creator", description = "Retrieves all groups created by a specific user")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved groups created by the user",
@@ -67,9 +252,10 @@ public class GroupController {
     @GetMapping("/creator/{userId}")
     public ResponseEntity<List<Group>> getGroupsByCreator(
             @Parameter(description = "ID of the creator user") @PathVariable Long userId) {
-        return userService.getUserById(userId)
-                .map(user -> ResponseEntity.ok(groupService.getGroupsByCreator(user)))
-                .orElse(ResponseEntity.notFound().build());
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(groupService.getGroupsByCreator(userId));
+        }
+        return ResponseEntity.notFound().build();
     }
 
     @Operation(summary = "Get groups by member", description = "Retrieves all groups where the specified user is a member")
@@ -81,9 +267,10 @@ public class GroupController {
     @GetMapping("/member/{userId}")
     public ResponseEntity<List<Group>> getGroupsByMember(
             @Parameter(description = "ID of the member user") @PathVariable Long userId) {
-        return userService.getUserById(userId)
-                .map(user -> ResponseEntity.ok(groupService.getGroupsByMember(user)))
-                .orElse(ResponseEntity.notFound().build());
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(groupService.getGroupsByMember(userId));
+        }
+        return ResponseEntity.notFound().build();
     }
 
     @Operation(summary = "Create a new group", description = "Creates a new group with the provided details")
@@ -162,15 +349,40 @@ public class GroupController {
         }
     }
 
-    @Operation(summary = "Delete a group", description = "Deletes a group by its ID")
+    @Operation(summary = "Delete a group",
+            description = "Hides the group at once and purges its expenses, settlements and memberships "
+                    + "in the background")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "204", description = "Group successfully deleted"),
+        @ApiResponse(responseCode = "202", description = "Group deleted, purge scheduled",
+                content = @Content(schema = @Schema(implementation = DeletionProgress.class))),
         @ApiResponse(responseCode = "404", description = "Group not found")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteGroup(
+    public ResponseEntity<DeletionProgress> deleteGroup(
             @Parameter(description = "ID of the group to delete") @PathVariable Long id) {
-        groupService.deleteGroup(id);
-        return ResponseEntity.noContent().build();
+        try {
+            groupService.deleteGroup(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        deletionService.requestPurge();
+        return deletionService.getProgress(DeletionProgress.Target.GROUP, id)
+                .map(progress -> ResponseEntity.accepted().body(progress))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get group deletion progress",
+            description = "Status of purging a deleted group, with the rows removed so far by table")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the progress",
+                content = @Content(schema = @Schema(implementation = DeletionProgress.class))),
+        @ApiResponse(responseCode = "404", description = "Group not deleted, or purged before the last restart")
+    })
+    @GetMapping("/{id}/deletion")
+    public ResponseEntity<DeletionProgress> getGroupDeletionProgress(
+            @Parameter(description = "ID of the deleted group") @PathVariable Long id) {
+        return deletionService.getProgress(DeletionProgress.Target.GROUP, id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
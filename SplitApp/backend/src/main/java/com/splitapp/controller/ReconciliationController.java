@@ -0,0 +1,60 @@
+package com.splitapp.controller;
+
+import com.splitapp.dto.ReconciliationReport;
+import com.splitapp.service.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@CrossOrigin(origins = "*")
+@Tag(name = "Reconciliation", description = "Ledger reconciliation APIs")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    @Autowired
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    @Operation(summary = "Start a reconciliation run",
+            description = "Checks in the background that every expense's splits add up to its amount and that "
+                    + "every ledger balance matches a recompute, optionally correcting the balances")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Run started",
+                content = @Content(schema = @Schema(implementation = ReconciliationReport.class))),
+        @ApiResponse(responseCode = "409", description = "A run is already in progress")
+    })
+    @PostMapping
+    public ResponseEntity<ReconciliationReport> startReconciliation(
+            @Parameter(description = "Append ledger adjustments for the balance discrepancies found")
+            @RequestParam(defaultValue = "false") boolean repair) {
+        return reconciliationService.start(repair)
+                .map(report -> ResponseEntity.status(HttpStatus.ACCEPTED).body(report))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @Operation(summary = "Get the latest reconciliation report",
+            description = "Progress of the running reconciliation, or the result of the last one")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the report",
+                content = @Content(schema = @Schema(implementation = ReconciliationReport.class))),
+        @ApiResponse(responseCode = "404", description = "No reconciliation has run since startup")
+    })
+    @GetMapping
+    public ResponseEntity<ReconciliationReport> getLatestReport() {
+        return reconciliationService.getLatestReport()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
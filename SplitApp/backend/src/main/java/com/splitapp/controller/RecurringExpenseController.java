@@ -0,0 +1,93 @@
+package com.splitapp.controller;
+
+import com.splitapp.model.RecurringExpense;
+import com.splitapp.service.RecurringExpenseService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/recurring-expenses")
+@CrossOrigin(origins = "*")
+@Tag(name = "Recurring Expense", description = "Recurring expense schedule APIs")
+public class RecurringExpenseController {
+
+    private final RecurringExpenseService recurringExpenseService;
+
+    @Autowired
+    public RecurringExpenseController(RecurringExpenseService recurringExpenseService) {
+        this.recurringExpenseService = recurringExpenseService;
+    }
+
+    @Operation(summary = "Get recurring expense by ID", description = "Retrieves a recurring expense schedule by its ID")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the recurring expense",
+                content = @Content(schema = @Schema(implementation = RecurringExpense.class))),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<RecurringExpense> getRecurringExpenseById(
+            @Parameter(description = "ID of the recurring expense") @PathVariable Long id) {
+        return recurringExpenseService.getRecurringExpenseById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get recurring expenses by group",
+            description = "Retrieves the recurring expense schedules of a group, next due first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved recurring expenses for the group",
+                content = @Content(schema = @Schema(implementation = RecurringExpense.class)))
+    })
+    @GetMapping("/group/{groupId}")
+    public ResponseEntity<List<RecurringExpense>> getRecurringExpensesByGroup(
+            @Parameter(description = "ID of the group") @PathVariable Long groupId) {
+        return ResponseEntity.ok(recurringExpenseService.getRecurringExpensesByGroup(groupId));
+    }
+
+    @Operation(summary = "Create a recurring expense",
+            description = "Creates a schedule that adds the expense to its group at every occurrence")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Recurring expense successfully created",
+                content = @Content(schema = @Schema(implementation = RecurringExpense.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @PostMapping
+    public ResponseEntity<RecurringExpense> createRecurringExpense(
+            @Parameter(description = "Recurring expense details") @Valid @RequestBody RecurringExpense recurringExpense) {
+        try {
+            RecurringExpense created = recurringExpenseService.createRecurringExpense(recurringExpense);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Delete a recurring expense",
+            description = "Stops a recurring expense schedule; expenses it already created are kept")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Recurring expense successfully deleted"),
+        @ApiResponse(responseCode = "404", description = "Recurring expense not found")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRecurringExpense(
+            @Parameter(description = "ID of the recurring expense") @PathVariable Long id) {
+        try {
+            recurringExpenseService.deleteRecurringExpense(id);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.splitapp.controller;
 
-import com.splitapp.model.Group;
 import com.splitapp.model.Settlement;
-import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
 import com.splitapp.service.GroupService;
+import com.splitapp.service.GroupVersionService;
+import com.splitapp.service.IdempotencyService;
 import com.splitapp.service.SettlementService;
 import com.splitapp.service.UserService;
+import com.splitapp.sharding.RouteToShard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,10 +19,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/settlements")
@@ -31,15 +34,21 @@ public class SettlementController {
     private final SettlementService settlementService;
     private final UserService userService;
     private final GroupService groupService;
+    private final GroupVersionService groupVersionService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
     public SettlementController(
             SettlementService settlementService,
             UserService userService,
-            GroupService groupService) {
+            GroupService groupService,
+            GroupVersionService groupVersionService,
+            IdempotencyService idempotencyService) {
         this.settlementService = settlementService;
         this.userService = userService;
         this.groupService = groupService;
+        this.groupVersionService = groupVersionService;
+        this.idempotencyService = idempotencyService;
     }
 
     @Operation(summary = "Get all settlements", description = "Retrieves a list of all settlements in the system")
@@ -70,16 +79,91 @@ public class SettlementController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved settlements for the group",
                 content = @Content(schema = @Schema(implementation = Settlement.class))),
+        @ApiResponse(responseCode = "304", description = "Settlements unchanged since the supplied ETag"),
         @ApiResponse(responseCode = "404", description = "Group not found")
     })
     @GetMapping("/group/{groupId}")
     public ResponseEntity<List<Settlement>> getSettlementsByGroup(
-            @Parameter(description = "ID of the group") @PathVariable Long groupId) {
-        Optional<Group> group = groupService.getGroupById(groupId);
-        if (group.isPresent()) {
-            return ResponseEntity.ok(settlementService.getSettlementsByGroup(group.get()));
+            @Parameter(description = "ID of the group") @PathVariable Long groupId,
+            WebRequest request) {
+        if (!groupService.existsById(groupId)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(groupId);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(settlementService.getSettlementsByGroup(groupId));
+    }
+
+    @Operation(summary = "Get selected fields of all settlements",
+            description = "Retrieves only the requested fields of every settlement, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the settlements"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list")
+    })
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectAllSettlements(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,amount,status,fromUser.name")
+            @RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(settlementService.selectAllSettlements(Projection.SETTLEMENT.parse(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Get selected fields of settlement by ID",
+            description = "Retrieves only the requested fields of a settlement")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the settlement"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "Settlement not found")
+    })
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> selectSettlementById(
+            @Parameter(description = "ID of the settlement to retrieve") @PathVariable Long id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,amount,status,fromUser.name")
+            @RequestParam String fields) {
+        List<String> selected;
+        try {
+            selected = Projection.SETTLEMENT.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return settlementService.selectSettlementById(id, selected)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get selected fields of settlements by group",
+            description = "Retrieves only the requested fields of the group's settlements, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved settlements for the group"),
+        @ApiResponse(responseCode = "304", description = "Settlements unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    @GetMapping(value = "/group/{groupId}", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectSettlementsByGroup(
+            @Parameter(description = "ID of the group") @PathVariable Long groupId,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,amount,status,fromUser.name")
+            @RequestParam String fields,
+            WebRequest request) {
+        List<String> selected;
+        try {
+            selected = Projection.SETTLEMENT.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!groupService.existsById(groupId)) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = groupVersionService.getETag(groupId, selected);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(settlementService.selectSettlementsByGroup(groupId, selected));
     }
 
     @Operation(summary = "Get settlements by payer", description = "Retrieves all settlements where the specified user is the payer")
@@ -91,9 +175,8 @@ public class SettlementController {
     @GetMapping("/from/{userId}")
     public ResponseEntity<List<Settlement>> getSettlementsByFromUser(
             @Parameter(description = "ID of the paying user") @PathVariable Long userId) {
-        Optional<User> user = userService.getUserById(userId);
-        if (user.isPresent()) {
-            return ResponseEntity.ok(settlementService.getSettlementsByFromUser(user.get()));
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(settlementService.getSettlementsByFromUser(userId));
         }
         return ResponseEntity.notFound().build();
     }
@@ -107,9 +190,8 @@ public class SettlementController {
     @GetMapping("/to/{userId}")
     public ResponseEntity<List<Settlement>> getSettlementsByToUser(
             @Parameter(description = "ID of the recipient user") @PathVariable Long userId) {
-        Optional<User> user = userService.getUserById(userId);
-        if (user.isPresent()) {
-            return ResponseEntity.ok(settlementService.getSettlementsByToUser(user.get()));
+        if (userService.existsById(userId)) {
+            return ResponseEntity.ok(settlementService.getSettlementsByToUser(userId));
         }
         return ResponseEntity.notFound().build();
     }
@@ -129,17 +211,23 @@ public class SettlementController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Settlement successfully created",
                 content = @Content(schema = @Schema(implementation = Settlement.class))),
-        @ApiResponse(responseCode = "400", description = "Invalid input data")
+        @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "422", description = "Idempotency key reused for a different request")
     })
     @PostMapping
-    public ResponseEntity<Settlement> createSettlement(
+    @RouteToShard(group = "#settlement.group?.id")
+    public ResponseEntity<?> createSettlement(
+            @Parameter(description = "Key that makes retries of this request safe")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Parameter(description = "Settlement details") @Valid @RequestBody Settlement settlement) {
-        try {
-            Settlement createdSettlement = settlementService.createSettlement(settlement);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdSettlement);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        return idempotencyService.execute("POST /api/settlements", idempotencyKey, settlement, () -> {
+            try {
+                Settlement createdSettlement = settlementService.createSettlement(settlement);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdSettlement);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
     }
 
     @Operation(summary = "Update settlement status", description = "Updates the status of an existing settlement")
@@ -169,6 +257,9 @@ public class SettlementController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteSettlement(
             @Parameter(description = "ID of the settlement to delete") @PathVariable Long id) {
+        if (!settlementService.getSettlementById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
         settlementService.deleteSettlement(id);
         return ResponseEntity.noContent().build();
     }
@@ -0,0 +1,55 @@
+package com.splitapp.controller;
+
+import com.splitapp.dto.SyncResponse;
+import com.splitapp.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+@Tag(name = "Sync", description = "Delta sync APIs")
+public class SyncController {
+
+    private static final int MAX_GROUPS = 200;
+
+    private final SyncService syncService;
+
+    @Autowired
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @Operation(summary = "Get changes since a cursor",
+            description = "Returns the expenses, splits, settlements and memberships of the given groups that "
+                    + "changed after the cursor, tombstones for deleted rows, and the cursor to pass next time")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the changes",
+                content = @Content(schema = @Schema(implementation = SyncResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or too many groups")
+    })
+    @GetMapping
+    public ResponseEntity<SyncResponse> getChanges(
+            @Parameter(description = "Cursor returned by the previous sync; omit to start from the beginning")
+            @RequestParam(required = false) String since,
+            @Parameter(description = "IDs of the groups to sync") @RequestParam List<Long> groupIds) {
+        if (groupIds.isEmpty() || groupIds.size() > MAX_GROUPS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(syncService.getChanges(since, groupIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.splitapp.controller;
 
+import com.splitapp.dto.DeletionProgress;
+import com.splitapp.dto.UserSpendStats;
 import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.service.DeletionService;
+import com.splitapp.service.SpendAnalyticsService;
 import com.splitapp.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -23,11 +29,20 @@ import java.util.List;
 @Tag(name = "User", description = "User management APIs")
 public class UserController {
 
+    private static final int MAX_BATCH_IDS = 100;
+
     private final UserService userService;
+    private final SpendAnalyticsService spendAnalyticsService;
+    private final DeletionService deletionService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(
+            UserService userService,
+            SpendAnalyticsService spendAnalyticsService,
+            DeletionService deletionService) {
         this.userService = userService;
+        this.spendAnalyticsService = spendAnalyticsService;
+        this.deletionService = deletionService;
     }
 
     @Operation(summary = "Get all users", description = "Retrieves a list of all users in the system")
@@ -40,6 +55,22 @@ public class UserController {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
+    @Operation(summary = "Get users by IDs",
+            description = "Retrieves the users with the given IDs in one query, skipping unknown IDs")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the users",
+                content = @Content(schema = @Schema(implementation = User.class))),
+        @ApiResponse(responseCode = "400", description = "No IDs, or more than " + MAX_BATCH_IDS)
+    })
+    @GetMapping(params = {"ids", "!fields"})
+    public ResponseEntity<List<User>> getUsersByIds(
+            @Parameter(description = "Comma-separated IDs, e.g. 1,2,3") @RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
     @Operation(summary = "Get user by ID", description = "Retrieves a user by their ID")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the user",
@@ -54,6 +85,70 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @Operation(summary = "Get selected fields of all users",
+            description = "Retrieves only the requested fields of every user, or of those listed in ids, in ID order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the users"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list")
+    })
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> selectAllUsers(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,avatarUrl")
+            @RequestParam String fields,
+            @Parameter(description = "Only return the users with these IDs, at most " + MAX_BATCH_IDS)
+            @RequestParam(required = false) List<Long> ids) {
+        if (ids != null && (ids.isEmpty() || ids.size() > MAX_BATCH_IDS)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            List<String> selected = Projection.USER.parse(fields);
+            return ResponseEntity.ok(ids == null
+                    ? userService.selectAllUsers(selected)
+                    : userService.selectUsersByIds(ids, selected));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get selected fields of user by ID",
+            description = "Retrieves only the requested fields of a user")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the user"),
+        @ApiResponse(responseCode = "400", description = "Unknown or empty field list"),
+        @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> selectUserById(
+            @Parameter(description = "ID of the user to retrieve") @PathVariable Long id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,avatarUrl")
+            @RequestParam String fields) {
+        List<String> selected;
+        try {
+            selected = Projection.USER.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return userService.selectUserById(id, selected)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get user spending stats",
+            description = "Retrieves what a user paid and owed across their groups, per month and per counterparty")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the user spending stats",
+                content = @Content(schema = @Schema(implementation = UserSpendStats.class))),
+        @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<UserSpendStats> getUserStats(
+            @Parameter(description = "ID of the user") @PathVariable Long id) {
+        if (!userService.getUserById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(spendAnalyticsService.getUserStats(id));
+    }
+
     @Operation(summary = "Create a new user", description = "Creates a new user with the provided details")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "User successfully created",
@@ -90,15 +185,39 @@ public class UserController {
         }
     }
 
-    @Operation(summary = "Delete a user", description = "Deletes a user by their ID")
+    @Operation(summary = "Delete a user",
+            description = "Hides the user at once and purges their group memberships in the background")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "204", description = "User successfully deleted"),
+        @ApiResponse(responseCode = "202", description = "User deleted, purge scheduled",
+                content = @Content(schema = @Schema(implementation = DeletionProgress.class))),
         @ApiResponse(responseCode = "404", description = "User not found")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(
+    public ResponseEntity<DeletionProgress> deleteUser(
             @Parameter(description = "ID of the user to delete") @PathVariable Long id) {
-        userService.deleteUser(id);
-        return ResponseEntity.noContent().build();
+        try {
+            userService.deleteUser(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        deletionService.requestPurge();
+        return deletionService.getProgress(DeletionProgress.Target.USER, id)
+                .map(progress -> ResponseEntity.accepted().body(progress))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get user deletion progress",
+            description = "Status of purging a deleted user, with the rows removed so far by table")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the progress",
+                content = @Content(schema = @Schema(implementation = DeletionProgress.class))),
+        @ApiResponse(responseCode = "404", description = "User not deleted, or purged before the last restart")
+    })
+    @GetMapping("/{id}/deletion")
+    public ResponseEntity<DeletionProgress> getUserDeletionProgress(
+            @Parameter(description = "ID of the deleted user") @PathVariable Long id) {
+        return deletionService.getProgress(DeletionProgress.Target.USER, id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
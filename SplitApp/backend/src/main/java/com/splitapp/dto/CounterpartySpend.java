@@ -0,0 +1,23 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterpartySpend {
+    private Long userId;
+    
+    // Display name of the counterparty
+    private String counterparty;
+    
+    // What the user paid to cover the counterparty's shares
+    private BigDecimal lent;
+    
+    // What the counterparty paid to cover the user's shares
+    private BigDecimal borrowed;
+}
@@ -0,0 +1,40 @@
+package com.splitapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class DeletionProgress {
+    public enum Target {
+        GROUP, USER
+    }
+    
+    public enum Status {
+        // Deleted, but not yet picked up since startup
+        PENDING,
+        PURGING,
+        COMPLETED,
+        // A user whose row is kept because shared expenses or settlements still refer to them
+        RETAINED,
+        // Retried on the next sweep; see the log
+        FAILED
+    }
+    
+    private Target target;
+    
+    private Long id;
+    
+    private Status status;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime finishedAt;
+    
+    // Rows removed so far, by table
+    private Map<String, Long> rowsPurged = new LinkedHashMap<>();
+}
@@ -0,0 +1,32 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSearchHit {
+    private Long expenseId;
+    
+    private Long groupId;
+    
+    private String description;
+    
+    private BigDecimal amount;
+    
+    // Display name of the user who paid
+    private String paidBy;
+    
+    private LocalDateTime expenseDate;
+    
+    // True when the expense has moved to the archive
+    private boolean archived;
+    
+    // Relevance; only meaningful relative to the other hits of the same query
+    private double score;
+}
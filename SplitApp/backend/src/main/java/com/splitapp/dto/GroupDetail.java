@@ -0,0 +1,27 @@
+package com.splitapp.dto;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.Group;
+import com.splitapp.model.Settlement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupDetail {
+    private Group group;
+    
+    // Most recent expenses, newest first
+    private List<Expense> expenses;
+    
+    private long totalExpenses;
+    
+    // Most recent settlements, newest first
+    private List<Settlement> settlements;
+    
+    private List<MemberBalance> balances;
+}
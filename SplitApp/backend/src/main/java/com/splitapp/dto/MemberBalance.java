@@ -0,0 +1,20 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberBalance {
+    private Long userId;
+    
+    // Display name of the member
+    private String member;
+    
+    // Positive when the member is owed money, negative when they owe
+    private BigDecimal balance;
+}
@@ -0,0 +1,22 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySpend {
+    // Calendar month, formatted yyyy-MM
+    private String month;
+    
+    private long expenseCount;
+    
+    private BigDecimal totalAmount;
+    
+    private List<PayerSpend> payers;
+}
@@ -0,0 +1,21 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayerSpend {
+    private Long userId;
+    
+    // Display name of the payer
+    private String payer;
+    
+    private long expenseCount;
+    
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,35 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationDiscrepancy {
+    public enum Type {
+        // An expense whose splits do not add up to its amount
+        SPLIT_TOTAL,
+        // A member whose ledger balance differs from the recomputed one
+        BALANCE
+    }
+    
+    private Type type;
+    
+    private Long groupId;
+    
+    // Expense id for SPLIT_TOTAL, user id for BALANCE
+    private Long entityId;
+    
+    // The expense amount, or the balance recomputed from splits and settlements
+    private BigDecimal expected;
+    
+    // The sum of the splits, or the balance in the ledger
+    private BigDecimal actual;
+    
+    // A ledger adjustment was appended for this balance
+    private boolean repaired;
+}
@@ -0,0 +1,41 @@
+package com.splitapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ReconciliationReport {
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    private String runId;
+    
+    private Status status;
+    
+    // Balance discrepancies are corrected with ledger adjustments
+    private boolean repair;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime finishedAt;
+    
+    private long groupsChecked;
+    
+    // Groups that could not be checked; see the log
+    private long groupsFailed;
+    
+    private long splitTotalDiscrepancies;
+    
+    private long balanceDiscrepancies;
+    
+    private long balancesRepaired;
+    
+    // The first discrepancies found, up to the configured limit
+    private List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+}
@@ -0,0 +1,35 @@
+package com.splitapp.dto;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Settlement;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class SyncResponse {
+    // Pass back as since on the next call
+    private String cursor;
+    
+    // More changes are waiting; call again right away with the new cursor
+    private boolean hasMore;
+    
+    // The cursor was older than the retained history: reload the lists, then sync from the new cursor
+    private boolean resetRequired;
+    
+    // Current state of rows created or changed since the cursor
+    private List<Expense> expenses = new ArrayList<>();
+    
+    private List<ExpenseSplit> expenseSplits = new ArrayList<>();
+    
+    private List<Settlement> settlements = new ArrayList<>();
+    
+    private List<SyncMembership> memberships = new ArrayList<>();
+    
+    // Rows deleted since the cursor; a deleted expense takes its splits with it
+    private List<SyncTombstone> tombstones = new ArrayList<>();
+}
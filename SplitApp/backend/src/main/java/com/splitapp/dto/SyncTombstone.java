@@ -0,0 +1,18 @@
+package com.splitapp.dto;
+
+import com.splitapp.model.ChangeLogEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncTombstone {
+    private ChangeLogEntry.EntityType entityType;
+    
+    // Id of the deleted row; the user id for a membership
+    private Long entityId;
+    
+    private Long groupId;
+}
@@ -0,0 +1,27 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMonthlySpend {
+    // Calendar month, formatted yyyy-MM
+    private String month;
+    
+    // Total the user paid for expenses, their own share included
+    private BigDecimal paid;
+    
+    // The user's own share of all expenses, whoever paid
+    private BigDecimal share;
+    
+    // Part of what the user paid that covered other members' shares
+    private BigDecimal lent;
+    
+    // Part of the user's share that other members paid
+    private BigDecimal borrowed;
+}
@@ -0,0 +1,20 @@
+package com.splitapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSpendStats {
+    private Long userId;
+    
+    // Newest month first
+    private List<UserMonthlySpend> months;
+    
+    // All-time totals per counterparty, largest first
+    private List<CounterpartySpend> counterparties;
+}
@@ -0,0 +1,89 @@
+package com.splitapp.fx;
+
+import com.splitapp.model.FxRate;
+import com.splitapp.repository.FxRateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads exchange rates from local sources only, so conversions keep working
+ * without network access: an optional CSV file of {@code date,currency,rate}
+ * lines, then the {@code fx_rates} table, whose rows win over the file for the
+ * same day and currency. Rates are units of the currency per unit of the pivot
+ * currency.
+ */
+@Component
+public class FxRateLoader {
+
+    private final FxRateRepository fxRateRepository;
+    private final ResourceLoader resourceLoader;
+    private final String ratesFile;
+
+    @Autowired
+    public FxRateLoader(
+            FxRateRepository fxRateRepository,
+            ResourceLoader resourceLoader,
+            @Value("${splitapp.fx.rates-file:}") String ratesFile) {
+        this.fxRateRepository = fxRateRepository;
+        this.resourceLoader = resourceLoader;
+        this.ratesFile = ratesFile;
+    }
+
+    /**
+     * Returns the rates published per day, keyed by day and then currency.
+     */
+    public Map<LocalDate, Map<String, BigDecimal>> load() {
+        Map<LocalDate, Map<String, BigDecimal>> rates = new HashMap<>();
+        if (!ratesFile.isEmpty()) {
+            readFile(resourceLoader.getResource(ratesFile), rates);
+        }
+        for (FxRate rate : fxRateRepository.findAll()) {
+            put(rates, rate.getRateDate(), rate.getCurrency(), rate.getUnitsPerPivot());
+        }
+        return rates;
+    }
+
+    private void readFile(Resource resource, Map<LocalDate, Map<String, BigDecimal>> rates) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("date,")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 3) {
+                    throw new IllegalStateException("Malformed FX rate at " + ratesFile + ":" + lineNumber);
+                }
+                put(rates, LocalDate.parse(fields[0].trim()), fields[1], new BigDecimal(fields[2].trim()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read FX rates from " + ratesFile, e);
+        }
+    }
+
+    private static void put(Map<LocalDate, Map<String, BigDecimal>> rates, LocalDate day, String currency,
+                            BigDecimal unitsPerPivot) {
+        if (unitsPerPivot.signum() <= 0) {
+            throw new IllegalStateException("FX rate for " + currency + " on " + day + " must be positive");
+        }
+        rates.computeIfAbsent(day, key -> new HashMap<>()).put(currency.trim().toUpperCase(Locale.ROOT), unitsPerPivot);
+    }
+}
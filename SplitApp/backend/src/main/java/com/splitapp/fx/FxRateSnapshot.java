@@ -0,0 +1,96 @@
+package com.splitapp.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of exchange rates by day, quoted against a pivot currency.
+ * Each day holds the full set of rates in effect on it, earlier rates carried
+ * forward, so a conversion is two map lookups. A refresh builds a new snapshot
+ * and swaps it in whole; readers holding the old one keep a consistent view.
+ */
+public final class FxRateSnapshot {
+
+    private static final int AMOUNT_SCALE = 2;
+
+    private final long version;
+    private final String pivotCurrency;
+    // day -> currency -> units of the currency per unit of the pivot currency
+    private final NavigableMap<LocalDate, Map<String, BigDecimal>> rates;
+
+    /**
+     * @param version    must be greater than that of any snapshot this one
+     *                   replaces
+     * @param dailyRates rates published per day; a currency missing on a day
+     *                   keeps its most recent earlier rate
+     */
+    public FxRateSnapshot(long version, String pivotCurrency, Map<LocalDate, Map<String, BigDecimal>> dailyRates) {
+        this.version = version;
+        this.pivotCurrency = pivotCurrency;
+        NavigableMap<LocalDate, Map<String, BigDecimal>> days = new TreeMap<>();
+        Map<String, BigDecimal> inEffect = new HashMap<>();
+        for (Map.Entry<LocalDate, Map<String, BigDecimal>> day : new TreeMap<>(dailyRates).entrySet()) {
+            day.getValue().forEach((currency, rate) -> inEffect.put(currency, rate.stripTrailingZeros()));
+            days.put(day.getKey(), Collections.unmodifiableMap(new HashMap<>(inEffect)));
+        }
+        this.rates = Collections.unmodifiableNavigableMap(days);
+    }
+
+    /**
+     * Grows with every change of rates, so a version seen once never comes
+     * back with different rates.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getPivotCurrency() {
+        return pivotCurrency;
+    }
+
+    public boolean hasSameRates(FxRateSnapshot other) {
+        return pivotCurrency.equals(other.pivotCurrency) && rates.equals(other.rates);
+    }
+
+    public boolean canConvert(String from, String to, LocalDate day) {
+        return from.equals(to) || (unitsPerPivot(from, day) != null && unitsPerPivot(to, day) != null);
+    }
+
+    /**
+     * Converts using the rates in effect on {@code day}, or the latest rates
+     * when the day is null. Days before the first published rates use the
+     * earliest rates.
+     *
+     * @throws IllegalArgumentException when either currency has no rate
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to, LocalDate day) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        BigDecimal fromRate = unitsPerPivot(from, day);
+        BigDecimal toRate = unitsPerPivot(to, day);
+        if (fromRate == null || toRate == null) {
+            throw new IllegalArgumentException("No exchange rate from " + from + " to " + to);
+        }
+        return amount.multiply(toRate).divide(fromRate, MathContext.DECIMAL64)
+                .setScale(AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    private BigDecimal unitsPerPivot(String currency, LocalDate day) {
+        if (currency.equals(pivotCurrency)) {
+            return BigDecimal.ONE;
+        }
+        Map.Entry<LocalDate, Map<String, BigDecimal>> inEffect = day == null ? rates.lastEntry() : rates.floorEntry(day);
+        if (inEffect == null) {
+            inEffect = rates.firstEntry();
+        }
+        return inEffect == null ? null : inEffect.getValue().get(currency);
+    }
+}
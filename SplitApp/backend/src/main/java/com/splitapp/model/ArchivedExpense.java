@@ -0,0 +1,46 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "expenses_archive",
+       indexes = @Index(name = "idx_expenses_archive_group_date", columnList = "group_id, expense_date"))
+public class ArchivedExpense {
+    // Same id the expense had in the hot table
+    @Id
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    @Column(name = "paid_by", nullable = false)
+    private Long paidById;
+    
+    private String description;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    // Null for expenses created before currencies existed
+    @Column(length = 3)
+    private String currency;
+    
+    // Null for expenses created before base amounts were stored
+    @Column(name = "base_amount", precision = 19, scale = 2)
+    private BigDecimal baseAmount;
+    
+    @Column(name = "expense_date")
+    private LocalDateTime expenseDate;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,34 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "expense_splits_archive",
+       indexes = @Index(name = "idx_expense_splits_archive_expense", columnList = "expense_id"))
+public class ArchivedExpenseSplit {
+    // Same id the split had in the hot table
+    @Id
+    private Long id;
+    
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    // Null for splits created before base amounts were stored
+    @Column(name = "base_amount", precision = 19, scale = 2)
+    private BigDecimal baseAmount;
+    
+    private boolean settled;
+    
+    private LocalDateTime createdAt;
+}
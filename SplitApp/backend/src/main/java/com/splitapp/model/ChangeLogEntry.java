@@ -0,0 +1,44 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "change_log", indexes = {
+    @Index(name = "idx_change_log_group_seq", columnList = "group_id, seq"),
+    @Index(name = "idx_change_log_changed_at", columnList = "changed_at")
+})
+public class ChangeLogEntry {
+    // Position in the change sequence; assigned at commit, so rows appear in sequence order
+    @Id
+    private Long seq;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+    
+    // Id of the changed row; the user id for memberships
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Operation operation;
+    
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+    
+    public enum EntityType {
+        EXPENSE, EXPENSE_SPLIT, SETTLEMENT, MEMBERSHIP, GROUP
+    }
+    
+    public enum Operation {
+        UPSERT, DELETE
+    }
+}
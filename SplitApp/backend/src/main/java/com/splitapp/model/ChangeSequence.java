@@ -0,0 +1,22 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+@Data
+@Entity
+@Table(name = "change_sequence")
+public class ChangeSequence {
+    // Single row per database
+    @Id
+    private Integer id;
+    
+    // Last sequence number handed out; every change up to it is committed
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+    
+    // Changes up to this sequence number have been purged from the change log
+    @Column(name = "purged_through", nullable = false)
+    private long purgedThrough;
+}
@@ -28,6 +28,14 @@ public class Expense {
     @Positive
     private BigDecimal amount;
     
+    // ISO 4217 code; null on expenses created before currencies existed, meaning the group's base currency
+    @Column(length = 3)
+    private String currency;
+    
+    // Amount in the group's base currency at the rates of creation; null on expenses created before it was stored
+    @Column(name = "base_amount")
+    private BigDecimal baseAmount;
+    
     @ManyToOne
     @JoinColumn(name = "group_id", nullable = false)
     private Group group;
@@ -45,6 +53,11 @@ public class Expense {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
     
+    // Optimistic lock; the default fills the column for rows created before it existed
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+    
     @OneToMany(mappedBy = "expense", cascade = CascadeType.ALL)
     private List<ExpenseSplit> splits = new ArrayList<>();
 
@@ -73,6 +86,22 @@ public class Expense {
         this.amount = amount;
     }
 
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public BigDecimal getBaseAmount() {
+        return baseAmount;
+    }
+
+    public void setBaseAmount(BigDecimal baseAmount) {
+        this.baseAmount = baseAmount;
+    }
+
     public Group getGroup() {
         return group;
     }
@@ -113,6 +142,14 @@ public class Expense {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<ExpenseSplit> getSplits() {
         return splits;
     }
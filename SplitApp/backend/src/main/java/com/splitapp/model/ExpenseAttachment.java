@@ -0,0 +1,38 @@
+package com.splitapp.model;
+
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "expense_attachments", indexes = {
+    @Index(name = "idx_expense_attachments_expense_id", columnList = "expense_id"),
+    @Index(name = "idx_expense_attachments_sha256", columnList = "sha256")
+})
+public class ExpenseAttachment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+    
+    // Hex SHA-256 of the content; names the file in the blob store, shared by identical uploads
+    @Column(nullable = false, length = 64)
+    private String sha256;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+    
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(name = "file_name")
+    private String fileName;
+    
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+@Data
+@Entity
+@Table(name = "expense_monthly_summaries",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "summary_month"}))
+public class ExpenseMonthlySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    // Calendar month of the archived expenses, formatted yyyy-MM
+    @Column(name = "summary_month", nullable = false, length = 7)
+    private String month;
+    
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+    
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+}
@@ -29,10 +29,19 @@ public class ExpenseSplit {
     @Positive
     private BigDecimal amount;
     
+    // Amount in the group's base currency at the rates the expense was created with; null on older splits
+    @Column(name = "base_amount")
+    private BigDecimal baseAmount;
+    
     private boolean settled;
     
     @CreationTimestamp
     private LocalDateTime createdAt;
+    
+    // Optimistic lock; the default fills the column for rows created before it existed
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
 
     // Getters and Setters
     public Long getId() {
@@ -67,6 +76,14 @@ public class ExpenseSplit {
         this.amount = amount;
     }
 
+    public BigDecimal getBaseAmount() {
+        return baseAmount;
+    }
+
+    public void setBaseAmount(BigDecimal baseAmount) {
+        this.baseAmount = baseAmount;
+    }
+
     public boolean isSettled() {
         return settled;
     }
@@ -82,4 +99,12 @@ public class ExpenseSplit {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
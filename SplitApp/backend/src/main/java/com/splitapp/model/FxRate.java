@@ -0,0 +1,29 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "fx_rates",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"rate_date", "currency"}))
+public class FxRate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // First day the rate applies; it holds until the next rate for the currency
+    @Column(name = "rate_date", nullable = false)
+    private LocalDate rateDate;
+    
+    // ISO 4217 code
+    @Column(nullable = false, length = 3)
+    private String currency;
+    
+    // Units of the currency per one unit of the pivot currency
+    @Column(name = "units_per_pivot", nullable = false, precision = 19, scale = 8)
+    private BigDecimal unitsPerPivot;
+}
@@ -23,6 +23,10 @@ public class Group {
     
     private String description;
     
+    // ISO 4217 code balances are reported in; null means splitapp.fx.default-currency
+    @Column(name = "base_currency", length = 3)
+    private String baseCurrency;
+    
     @ManyToOne
     @JoinColumn(name = "creator_id", nullable = false)
     private User creator;
@@ -33,6 +37,15 @@ public class Group {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
     
+    // Set when the group is deleted; DeletionService purges the row and what depends on it later
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+    
+    // Optimistic lock; the default fills the column for rows created before it existed
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+    
     @ManyToMany
     @JoinTable(
         name = "group_members",
@@ -66,6 +79,14 @@ public class Group {
         this.description = description;
     }
 
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public void setBaseCurrency(String baseCurrency) {
+        this.baseCurrency = baseCurrency;
+    }
+
     public User getCreator() {
         return creator;
     }
@@ -90,6 +111,22 @@ public class Group {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<User> getMembers() {
         return members;
     }
@@ -0,0 +1,32 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+@Data
+@Entity
+@Table(name = "group_spend_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "spend_month", "payer_id"}))
+public class GroupSpendRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    // Calendar month of the expense date, formatted yyyy-MM
+    @Column(name = "spend_month", nullable = false, length = 7)
+    private String month;
+    
+    @Column(name = "payer_id", nullable = false)
+    private Long payerId;
+    
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+    
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,18 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+@Data
+@Entity
+@Table(name = "group_versions")
+public class GroupVersion {
+    @Id
+    @Column(name = "group_id")
+    private Long groupId;
+    
+    // Incremented by every mutation of the group or its expenses/settlements
+    @Column(nullable = false)
+    private long version;
+}
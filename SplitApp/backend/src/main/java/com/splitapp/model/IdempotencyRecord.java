@@ -0,0 +1,36 @@
+package com.splitapp.model;
+
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "idempotency_records",
+       indexes = @Index(name = "idx_idempotency_records_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+    // Request scope (method and path) followed by the client-supplied key
+    @Id
+    @Column(name = "idempotency_key", length = 191)
+    private String key;
+    
+    // SHA-256 of the request payload, so a reused key with a different body is rejected
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+    
+    // Null while the original request is still executing
+    @Column(name = "status_code")
+    private Integer statusCode;
+    
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+    
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
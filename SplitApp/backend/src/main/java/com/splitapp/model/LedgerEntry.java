@@ -0,0 +1,46 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "ledger_entries", indexes = {
+    @Index(name = "idx_ledger_entries_group_id", columnList = "group_id, id"),
+    @Index(name = "idx_ledger_entries_group_recorded_at", columnList = "group_id, recorded_at")
+})
+public class LedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    // Signed change to what the user is owed: positive when owed more, negative when owing more
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 32)
+    private EntryType entryType;
+    
+    // Id of the expense, split or settlement that caused the entry
+    @Column(name = "reference_id")
+    private Long referenceId;
+    
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+    
+    public enum EntryType {
+        EXPENSE_RECORDED, EXPENSE_DELETED, SPLIT_SETTLED, SETTLEMENT_COMPLETED, SETTLEMENT_REVERSED,
+        // Correction appended by the reconciliation job; has no reference
+        RECONCILIATION_ADJUSTMENT
+    }
+}
@@ -0,0 +1,35 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Entity
+@Table(name = "ledger_snapshots",
+       indexes = @Index(name = "idx_ledger_snapshots_group_entry", columnList = "group_id, last_entry_id"))
+public class LedgerSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    // The snapshot folds in every entry of the group up to and including this id
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+    
+    @Column(name = "covered_until", nullable = false)
+    private LocalDateTime coveredUntil;
+    
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "ledger_snapshot_balances", joinColumns = @JoinColumn(name = "snapshot_id"))
+    @MapKeyColumn(name = "user_id")
+    @Column(name = "balance", precision = 19, scale = 2)
+    private Map<Long, BigDecimal> balances = new HashMap<>();
+}
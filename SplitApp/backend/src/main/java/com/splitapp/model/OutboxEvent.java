@@ -0,0 +1,56 @@
+package com.splitapp.model;
+
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_events_available_at", columnList = "available_at")
+})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private EventType eventType;
+    
+    @Column(name = "group_id")
+    private Long groupId;
+    
+    // Id of the expense, split or settlement the event is about; the user id for membership events
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+    
+    // When the event may next be delivered; null once delivery has been given up
+    @Column(name = "available_at")
+    private LocalDateTime availableAt;
+    
+    // Failed deliveries so far
+    @Column(nullable = false)
+    private int attempts;
+    
+    // Instance currently delivering this event, and until when it may
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+    
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+    
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+    
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    public enum EventType {
+        EXPENSE_CREATED, EXPENSE_DELETED, EXPENSE_SPLIT_SETTLED,
+        SETTLEMENT_CREATED, SETTLEMENT_STATUS_CHANGED, SETTLEMENT_DELETED,
+        MEMBER_ADDED, MEMBER_REMOVED
+    }
+}
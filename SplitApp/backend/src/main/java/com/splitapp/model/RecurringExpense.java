@@ -0,0 +1,102 @@
+package com.splitapp.model;
+
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Entity
+@Table(name = "recurring_expenses", indexes = {
+    @Index(name = "idx_recurring_expenses_next_run_at", columnList = "next_run_at"),
+    @Index(name = "idx_recurring_expenses_group_id", columnList = "group_id")
+})
+public class RecurringExpense {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    @NotNull
+    @Column(name = "paid_by", nullable = false)
+    private Long paidById;
+    
+    @NotBlank
+    private String description;
+    
+    @NotNull
+    @Positive
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    // ISO 4217 code; null means the group's base currency
+    @Column(length = 3)
+    private String currency;
+    
+    // Share of each user, keyed by user id; must add up to the amount
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "recurring_expense_splits", joinColumns = @JoinColumn(name = "recurring_expense_id"))
+    @MapKeyColumn(name = "user_id")
+    @Column(name = "amount", precision = 19, scale = 2)
+    private Map<Long, BigDecimal> splits = new HashMap<>();
+    
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Frequency frequency;
+    
+    // Number of frequency units between occurrences
+    @Column(name = "interval_count", nullable = false)
+    private int intervalCount = 1;
+    
+    // Date of the first occurrence; later ones are computed from it, so month ends do not drift
+    @Column(name = "start_at", nullable = false)
+    private LocalDateTime startAt;
+    
+    // No occurrence is created after this point; null repeats forever
+    @Column(name = "end_at")
+    private LocalDateTime endAt;
+    
+    // Number of occurrences created so far
+    @Column(nullable = false)
+    private long occurrences;
+    
+    // Date of the next occurrence; null once the schedule has ended
+    @Column(name = "next_run_at")
+    private LocalDateTime nextRunAt;
+    
+    // Instance currently materializing this schedule, and until when it may
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+    
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+    
+    // Why the last attempt to create an occurrence failed, if it did
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+    
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+    
+    @Version
+    private Long version;
+    
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+}
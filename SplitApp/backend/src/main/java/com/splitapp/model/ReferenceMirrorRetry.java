@@ -0,0 +1,38 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "reference_mirror_retries",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"entity_type", "entity_id"}),
+       indexes = @Index(name = "idx_reference_mirror_retries_next_attempt", columnList = "next_attempt_at"))
+public class ReferenceMirrorRetry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+    
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+    
+    // Failed attempts so far
+    @Column(nullable = false)
+    private int attempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+    
+    public enum EntityType {
+        USER, GROUP
+    }
+}
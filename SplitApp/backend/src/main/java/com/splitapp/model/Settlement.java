@@ -29,6 +29,7 @@ public class Settlement {
     @JoinColumn(name = "to_user_id", nullable = false)
     private User toUser;
     
+    // In the group's base currency
     @NotNull
     @Positive
     private BigDecimal amount;
@@ -41,6 +42,11 @@ public class Settlement {
     @CreationTimestamp
     private LocalDateTime createdAt;
     
+    // Optimistic lock; the default fills the column for rows created before it existed
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+    
     public enum SettlementStatus {
         PENDING, COMPLETED, CANCELLED
     }
@@ -109,4 +115,12 @@ public class Settlement {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -40,6 +40,10 @@ public class User {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
     
+    // Set when the user is deleted; the row stays while expenses or settlements still refer to the user
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+    
     // Relationships
     @OneToMany(mappedBy = "creator")
     private List<Group> createdGroups = new ArrayList<>();
@@ -112,6 +116,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     public List<Group> getCreatedGroups() {
         return createdGroups;
     }
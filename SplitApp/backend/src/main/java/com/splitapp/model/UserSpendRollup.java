@@ -0,0 +1,40 @@
+package com.splitapp.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+@Data
+@Entity
+@Table(name = "user_spend_rollups",
+       uniqueConstraints = @UniqueConstraint(
+               columnNames = {"user_id", "group_id", "spend_month", "counterparty_id"}),
+       indexes = @Index(name = "idx_user_spend_rollups_group", columnList = "group_id"))
+public class UserSpendRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    // Calendar month of the expense date, formatted yyyy-MM
+    @Column(name = "spend_month", nullable = false, length = 7)
+    private String month;
+    
+    // The user themselves for their own share of what they paid
+    @Column(name = "counterparty_id", nullable = false)
+    private Long counterpartyId;
+    
+    // What the user paid to cover the counterparty's shares
+    @Column(name = "paid_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal paidAmount;
+    
+    // What the counterparty paid to cover the user's shares
+    @Column(name = "owed_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal owedAmount;
+}
@@ -0,0 +1,24 @@
+package com.splitapp.outbox;
+
+import com.splitapp.model.OutboxEvent;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Receives outbox events after the transaction that published them has
+ * committed. Any bean implementing this interface is picked up. Delivery is
+ * at least once, in batches: a batch that fails is retried event by event,
+ * and an event that fails again is redelivered later to every handler of its
+ * type, so handlers must tolerate seeing an event twice.
+ */
+public interface OutboxHandler {
+
+    Set<OutboxEvent.EventType> getEventTypes();
+
+    /**
+     * @param events events of this handler's types, oldest first; the rows
+     *               they refer to may have changed or gone since
+     */
+    void handle(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,95 @@
+package com.splitapp.projection;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.Group;
+import com.splitapp.model.Settlement;
+import com.splitapp.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of an entity a {@code fields=} parameter may select: its own
+ * columns, and the columns of the entities it references one level down, as
+ * {@code association.field}. Collections and secrets are not selectable.
+ */
+public final class Projection<T> {
+
+    private static final List<String> USER_FIELDS = Arrays.asList(
+            "id", "name", "email", "phone", "avatarUrl", "createdAt", "updatedAt");
+    private static final List<String> REFERENCED_USER_FIELDS = Arrays.asList("id", "name", "email", "avatarUrl");
+    private static final List<String> REFERENCED_GROUP_FIELDS = Arrays.asList("id", "name", "baseCurrency");
+
+    public static final Projection<Expense> EXPENSE = new Projection<>(Expense.class, new Builder()
+            .fields("id", "description", "amount", "currency", "expenseDate", "createdAt", "updatedAt", "version")
+            .association("group", REFERENCED_GROUP_FIELDS)
+            .association("paidBy", REFERENCED_USER_FIELDS));
+
+    public static final Projection<Settlement> SETTLEMENT = new Projection<>(Settlement.class, new Builder()
+            .fields("id", "amount", "notes", "status", "createdAt", "version")
+            .association("group", REFERENCED_GROUP_FIELDS)
+            .association("fromUser", REFERENCED_USER_FIELDS)
+            .association("toUser", REFERENCED_USER_FIELDS));
+
+    public static final Projection<Group> GROUP = new Projection<>(Group.class, new Builder()
+            .fields("id", "name", "description", "baseCurrency", "createdAt", "updatedAt", "version")
+            .association("creator", REFERENCED_USER_FIELDS));
+
+    public static final Projection<User> USER = new Projection<>(User.class, new Builder()
+            .fields(USER_FIELDS.toArray(new String[0])));
+
+    private final Class<T> entityType;
+    private final Set<String> selectable;
+
+    private Projection(Class<T> entityType, Builder builder) {
+        this.entityType = entityType;
+        this.selectable = Collections.unmodifiableSet(builder.selectable);
+    }
+
+    public Class<T> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * @param fields comma-separated field paths
+     * @return the distinct paths, in the order given
+     * @throws IllegalArgumentException when the list is empty or names a field that cannot be selected
+     */
+    public List<String> parse(String fields) {
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            if (!selectable.contains(path)) {
+                throw new IllegalArgumentException("Unknown field: " + path);
+            }
+            parsed.add(path);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No fields selected");
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    private static class Builder {
+        private final Set<String> selectable = new LinkedHashSet<>();
+
+        Builder fields(String... fields) {
+            selectable.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        Builder association(String name, List<String> fields) {
+            for (String field : fields) {
+                selectable.add(name + "." + field);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.splitapp.projection;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a query that selects only the requested columns, joining a referenced
+ * table only when one of its columns other than the id is asked for (the id
+ * is the foreign key already on the row). Rows come back as maps nested the
+ * way the entity would serialize, ordered by id, and no entity is loaded into
+ * the persistence context. Runs on the current shard and transaction.
+ */
+@Component
+public class ProjectionQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> List<Map<String, Object>> find(Projection<T> projection, List<String> fields, Specification<T> where) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(projection.getEntityType());
+
+        Map<String, Join<T, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(path(root, joins, field));
+        }
+        query.multiselect(selections);
+        if (where != null) {
+            Predicate predicate = where.toPredicate(root, query, builder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(builder.asc(root.get("id")));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            rows.add(toRow(tuple, fields));
+        }
+        return rows;
+    }
+
+    private static <T> Path<?> path(Root<T> root, Map<String, Join<T, ?>> joins, String field) {
+        int dot = field.indexOf('.');
+        if (dot < 0) {
+            return root.get(field);
+        }
+        String association = field.substring(0, dot);
+        String column = field.substring(dot + 1);
+        if (column.equals("id")) {
+            return root.get(association).get("id");
+        }
+        return joins.computeIfAbsent(association, name -> root.join(name, JoinType.LEFT)).get(column);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toRow(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            Object value = tuple.get(i);
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                row.put(field, value);
+                continue;
+            }
+            Map<String, Object> nested = (Map<String, Object>) row.computeIfAbsent(
+                    field.substring(0, dot), name -> new LinkedHashMap<String, Object>());
+            nested.put(field.substring(dot + 1), value);
+        }
+        return row;
+    }
+}
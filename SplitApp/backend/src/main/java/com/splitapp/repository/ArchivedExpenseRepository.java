@@ -0,0 +1,30 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ArchivedExpense;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedExpenseRepository extends JpaRepository<ArchivedExpense, Long> {
+    Page<ArchivedExpense> findByGroupId(Long groupId, Pageable pageable);
+
+    // Rows of [id, group id, description, amount, expense date, payer name], in id order
+    @Query("SELECT a.id, a.groupId, a.description, a.amount, a.expenseDate, u.name "
+            + "FROM ArchivedExpense a, User u WHERE u.id = a.paidById AND a.id > :afterId ORDER BY a.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Rows of [year, month, day, currency, payer id, expense count, amount of expenses without a base amount,
+    // sum of base amounts] for a group
+    @Query("SELECT year(a.expenseDate), month(a.expenseDate), day(a.expenseDate), a.currency, a.paidById, "
+            + "COUNT(a), SUM(CASE WHEN a.baseAmount IS NULL THEN a.amount ELSE 0 END), "
+            + "SUM(COALESCE(a.baseAmount, 0)) FROM ArchivedExpense a "
+            + "WHERE a.groupId = :groupId AND a.expenseDate IS NOT NULL "
+            + "GROUP BY year(a.expenseDate), month(a.expenseDate), day(a.expenseDate), a.currency, a.paidById")
+    List<Object[]> sumSpendByMonthAndPayer(@Param("groupId") Long groupId);
+}
@@ -0,0 +1,24 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ArchivedExpenseSplit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedExpenseSplitRepository extends JpaRepository<ArchivedExpenseSplit, Long> {
+    List<ArchivedExpenseSplit> findByExpenseId(Long expenseId);
+
+    // Rows of [year, month, day, currency, payer id, split user id, share without a base amount,
+    // sum of base amounts] for a group
+    @Query("SELECT year(a.expenseDate), month(a.expenseDate), day(a.expenseDate), a.currency, a.paidById, "
+            + "s.userId, SUM(CASE WHEN s.baseAmount IS NULL THEN s.amount ELSE 0 END), "
+            + "SUM(COALESCE(s.baseAmount, 0)) FROM ArchivedExpenseSplit s, ArchivedExpense a "
+            + "WHERE a.id = s.expenseId AND a.groupId = :groupId AND a.expenseDate IS NOT NULL "
+            + "GROUP BY year(a.expenseDate), month(a.expenseDate), day(a.expenseDate), a.currency, a.paidById, "
+            + "s.userId")
+    List<Object[]> sumSharesByMonth(@Param("groupId") Long groupId);
+}
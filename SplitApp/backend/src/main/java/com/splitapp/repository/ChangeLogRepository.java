@@ -0,0 +1,41 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+    @Query("SELECT c FROM ChangeLogEntry c WHERE c.groupId IN :groupIds AND c.seq > :since AND c.seq <= :through "
+            + "ORDER BY c.seq")
+    List<ChangeLogEntry> findChanges(@Param("groupIds") Collection<Long> groupIds, @Param("since") long since,
+                                     @Param("through") long through, Pageable pageable);
+
+    // Plain insert: the seq is assigned, so save() would look the row up first
+    @Modifying
+    @Query(value = "INSERT INTO change_log (seq, group_id, entity_type, entity_id, operation, changed_at) "
+            + "VALUES (:seq, :groupId, :entityType, :entityId, :operation, :changedAt)", nativeQuery = true)
+    int insert(@Param("seq") long seq, @Param("groupId") Long groupId, @Param("entityType") String entityType,
+               @Param("entityId") Long entityId, @Param("operation") String operation,
+               @Param("changedAt") LocalDateTime changedAt);
+
+    // Zero when no change of the kind is left in the log
+    @Query("SELECT COALESCE(MAX(c.seq), 0) FROM ChangeLogEntry c WHERE c.operation = :operation")
+    long findLastSeqOf(@Param("operation") ChangeLogEntry.Operation operation);
+
+    @Query("SELECT MAX(c.seq) FROM ChangeLogEntry c WHERE c.changedAt < :cutoff")
+    Optional<Long> findLastSeqChangedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query(value = "DELETE FROM change_log WHERE seq <= :through LIMIT :limit", nativeQuery = true)
+    int deleteThrough(@Param("through") long through, @Param("limit") int limit);
+}
@@ -0,0 +1,26 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, Integer> {
+    int SEQUENCE_ID = 1;
+
+    // Reserves the next count numbers; the row stays locked until the transaction ends
+    @Modifying
+    @Query(value = "INSERT INTO change_sequence (id, last_seq, purged_through) VALUES (1, :count, 0) "
+            + "ON DUPLICATE KEY UPDATE last_seq = last_seq + :count", nativeQuery = true)
+    int advance(@Param("count") long count);
+
+    @Query(value = "SELECT last_seq FROM change_sequence WHERE id = 1", nativeQuery = true)
+    long findLastSeq();
+
+    @Modifying
+    @Query("UPDATE ChangeSequence s SET s.purgedThrough = :through WHERE s.id = 1 AND s.purgedThrough < :through")
+    int markPurgedThrough(@Param("through") long through);
+}
@@ -0,0 +1,24 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ExpenseAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ExpenseAttachmentRepository extends JpaRepository<ExpenseAttachment, Long> {
+    List<ExpenseAttachment> findByExpenseIdOrderById(Long expenseId);
+
+    Optional<ExpenseAttachment> findByIdAndExpenseId(Long id, Long expenseId);
+
+    boolean existsBySha256(String sha256);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseAttachment a WHERE a.expenseId = :expenseId")
+    int deleteByExpenseId(@Param("expenseId") Long expenseId);
+}
@@ -0,0 +1,24 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.ExpenseMonthlySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface ExpenseMonthlySummaryRepository extends JpaRepository<ExpenseMonthlySummary, Long> {
+    List<ExpenseMonthlySummary> findByGroupIdOrderByMonthDesc(Long groupId);
+
+    @Modifying
+    @Query(value = "INSERT INTO expense_monthly_summaries (group_id, summary_month, expense_count, total_amount) "
+            + "VALUES (:groupId, :month, :count, :total) "
+            + "ON DUPLICATE KEY UPDATE expense_count = expense_count + :count, total_amount = total_amount + :total",
+            nativeQuery = true)
+    int addToSummary(@Param("groupId") Long groupId, @Param("month") String month,
+                     @Param("count") long count, @Param("total") BigDecimal total);
+}
@@ -1,15 +1,62 @@
 package com.splitapp.repository;
 
 import com.splitapp.model.Expense;
-import com.splitapp.model.Group;
-import com.splitapp.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
-    List<Expense> findByGroup(Group group);
-    List<Expense> findByPaidBy(User user);
+    List<Expense> findByGroupId(Long groupId);
+    List<Expense> findByPaidById(Long userId);
+    Page<Expense> findByGroupId(Long groupId, Pageable pageable);
+    boolean existsByGroupId(Long groupId);
+
+    @Query("SELECT e.group.id FROM Expense e WHERE e.id = :id")
+    Long findGroupIdById(@Param("id") Long id);
+
+    // Loads the splits along with the expenses; instances already in the persistence context get theirs filled in
+    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.splits WHERE e.id IN :ids")
+    List<Expense> findWithSplitsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Rows of [id, group id] of expenses older than the cutoff whose splits are all settled, walked in id order;
+    // rows locked by another archiver are skipped, not waited for
+    @Query(value = "SELECT e.id, e.group_id FROM expenses e WHERE e.id > :afterId AND e.expense_date < :cutoff "
+            + "AND NOT EXISTS (SELECT 1 FROM expense_splits s WHERE s.expense_id = e.id AND s.settled = false) "
+            + "ORDER BY e.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Object[]> claimArchivable(
+            @Param("afterId") Long afterId, @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    // Those of the given expenses whose splits are all settled
+    @Query("SELECT e.id FROM Expense e WHERE e.id IN :ids "
+            + "AND NOT EXISTS (SELECT s.id FROM ExpenseSplit s WHERE s.expense = e AND s.settled = false) "
+            + "ORDER BY e.id")
+    List<Long> findFullySettledIds(@Param("ids") Collection<Long> ids);
+
+    // Rows of [id, group id, description, amount, expense date, payer name], in id order
+    @Query("SELECT e.id, e.group.id, e.description, e.amount, e.expenseDate, p.name "
+            + "FROM Expense e JOIN e.paidBy p WHERE e.id > :afterId ORDER BY e.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Rows of [year, month, day, currency, payer id, expense count, amount of expenses without a base amount,
+    // sum of base amounts] for a group
+    @Query("SELECT year(e.expenseDate), month(e.expenseDate), day(e.expenseDate), e.currency, e.paidBy.id, "
+            + "COUNT(e), SUM(CASE WHEN e.baseAmount IS NULL THEN e.amount ELSE 0 END), "
+            + "SUM(COALESCE(e.baseAmount, 0)) FROM Expense e WHERE e.group.id = :groupId AND e.expenseDate IS NOT NULL "
+            + "GROUP BY year(e.expenseDate), month(e.expenseDate), day(e.expenseDate), e.currency, e.paidBy.id")
+    List<Object[]> sumSpendByMonthAndPayer(@Param("groupId") Long groupId);
+
+    // Rows of [id, amount, sum of split amounts] for the expenses of a group whose splits do not add up
+    @Query("SELECT e.id, e.amount, COALESCE(SUM(s.amount), 0) FROM Expense e LEFT JOIN e.splits s "
+            + "WHERE e.group.id = :groupId GROUP BY e.id, e.amount "
+            + "HAVING e.amount <> COALESCE(SUM(s.amount), 0)")
+    List<Object[]> findSplitTotalMismatches(@Param("groupId") Long groupId);
 }
\ No newline at end of file
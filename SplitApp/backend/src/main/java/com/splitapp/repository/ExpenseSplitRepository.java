@@ -2,15 +2,55 @@ package com.splitapp.repository;
 
 import com.splitapp.model.Expense;
 import com.splitapp.model.ExpenseSplit;
-import com.splitapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ExpenseSplitRepository extends JpaRepository<ExpenseSplit, Long> {
     List<ExpenseSplit> findByExpense(Expense expense);
-    List<ExpenseSplit> findByUser(User user);
-    List<ExpenseSplit> findByUserAndSettledFalse(User user);
+    List<ExpenseSplit> findByUserId(Long userId);
+    List<ExpenseSplit> findByUserIdAndSettledFalse(Long userId);
+    List<ExpenseSplit> findByExpenseIdIn(Collection<Long> expenseIds);
+
+    @Query("SELECT s.expense.group.id FROM ExpenseSplit s WHERE s.id = :id")
+    Long findGroupIdById(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseSplit s WHERE s.expense.id IN :expenseIds")
+    int deleteByExpenseIds(@Param("expenseIds") Collection<Long> expenseIds);
+
+    // Rows of [debtor id, payer id, unsettled amount] for a group, over splits with a stored base amount
+    // and older splits of expenses in the given currency
+    @Query("SELECT s.user.id, e.paidBy.id, SUM(COALESCE(s.baseAmount, s.amount)) FROM ExpenseSplit s JOIN s.expense e "
+            + "WHERE e.group.id = :groupId AND s.settled = false AND s.user.id <> e.paidBy.id "
+            + "AND (s.baseAmount IS NOT NULL OR e.currency IS NULL OR e.currency = :currency) "
+            + "GROUP BY s.user.id, e.paidBy.id")
+    List<Object[]> sumUnsettledAmountsByGroup(@Param("groupId") Long groupId, @Param("currency") String currency);
+
+    // Rows of [debtor id, payer id, currency, year, month, day, unsettled amount] for a group,
+    // over splits without a stored base amount of expenses in any currency other than the given one
+    @Query("SELECT s.user.id, e.paidBy.id, e.currency, year(e.expenseDate), month(e.expenseDate), "
+            + "day(e.expenseDate), SUM(s.amount) FROM ExpenseSplit s JOIN s.expense e "
+            + "WHERE e.group.id = :groupId AND s.settled = false AND s.user.id <> e.paidBy.id "
+            + "AND s.baseAmount IS NULL AND e.currency IS NOT NULL AND e.currency <> :currency "
+            + "GROUP BY s.user.id, e.paidBy.id, e.currency, year(e.expenseDate), month(e.expenseDate), "
+            + "day(e.expenseDate)")
+    List<Object[]> sumUnsettledForeignAmountsByGroup(
+            @Param("groupId") Long groupId, @Param("currency") String currency);
+
+    // Rows of [year, month, day, currency, payer id, split user id, share without a base amount,
+    // sum of base amounts] for a group
+    @Query("SELECT year(e.expenseDate), month(e.expenseDate), day(e.expenseDate), e.currency, e.paidBy.id, "
+            + "s.user.id, SUM(CASE WHEN s.baseAmount IS NULL THEN s.amount ELSE 0 END), "
+            + "SUM(COALESCE(s.baseAmount, 0)) FROM ExpenseSplit s JOIN s.expense e "
+            + "WHERE e.group.id = :groupId AND e.expenseDate IS NOT NULL "
+            + "GROUP BY year(e.expenseDate), month(e.expenseDate), day(e.expenseDate), e.currency, e.paidBy.id, "
+            + "s.user.id")
+    List<Object[]> sumSharesByMonth(@Param("groupId") Long groupId);
 }
\ No newline at end of file
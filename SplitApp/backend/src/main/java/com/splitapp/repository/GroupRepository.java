@@ -1,14 +1,55 @@
 package com.splitapp.repository;
 
 import com.splitapp.model.Group;
-import com.splitapp.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GroupRepository extends JpaRepository<Group, Long> {
-    List<Group> findByCreator(User creator);
-    List<Group> findByMembersContaining(User member);
+    // Deleted groups are gone as far as lookups are concerned, while DeletionService purges them
+    @Override
+    @Query("SELECT g FROM Group g WHERE g.deletedAt IS NULL")
+    List<Group> findAll();
+
+    @Override
+    @Query("SELECT g FROM Group g WHERE g.id = :id AND g.deletedAt IS NULL")
+    Optional<Group> findById(@Param("id") Long id);
+
+    @Override
+    @Query("SELECT CASE WHEN COUNT(g) > 0 THEN true ELSE false END FROM Group g "
+            + "WHERE g.id = :id AND g.deletedAt IS NULL")
+    boolean existsById(@Param("id") Long id);
+
+    List<Group> findByCreatorIdAndDeletedAtIsNull(Long userId);
+    List<Group> findByMembersIdAndDeletedAtIsNull(Long userId);
+    boolean existsByCreatorId(Long userId);
+
+    // One query for the groups with their creators and members, for batch lookups
+    @EntityGraph(attributePaths = {"creator", "members"})
+    List<Group> findDistinctByIdInAndDeletedAtIsNullOrderById(Collection<Long> ids);
+
+    @Query("SELECT g.id FROM Group g WHERE g.deletedAt IS NULL ORDER BY g.id")
+    List<Long> findAllIds();
+
+    @Query("SELECT g.id FROM Group g WHERE g.id > :afterId AND g.deletedAt IS NULL ORDER BY g.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT g.id FROM Group g WHERE g.deletedAt IS NOT NULL ORDER BY g.id")
+    List<Long> findDeletedIds();
+
+    @Query("SELECT g.deletedAt FROM Group g WHERE g.id = :id")
+    Optional<LocalDateTime> findDeletedAtById(@Param("id") Long id);
+
+    // Including deleted groups, which lose their members when they are purged anyway
+    @Query("SELECT g.id FROM Group g JOIN g.members m WHERE m.id = :userId ORDER BY g.id")
+    List<Long> findIdsByMemberId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.GroupSpendRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface GroupSpendRollupRepository extends JpaRepository<GroupSpendRollup, Long> {
+    List<GroupSpendRollup> findByGroupIdOrderByMonthDescPayerIdAsc(Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM GroupSpendRollup r WHERE r.groupId = :groupId")
+    int deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query(value = "INSERT INTO group_spend_rollups (group_id, spend_month, payer_id, expense_count, total_amount) "
+            + "VALUES (:groupId, :month, :payerId, :count, :total) "
+            + "ON DUPLICATE KEY UPDATE expense_count = expense_count + :count, total_amount = total_amount + :total",
+            nativeQuery = true)
+    int addToRollup(@Param("groupId") Long groupId, @Param("month") String month, @Param("payerId") Long payerId,
+                    @Param("count") long count, @Param("total") BigDecimal total);
+}
@@ -0,0 +1,21 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.GroupVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GroupVersionRepository extends JpaRepository<GroupVersion, Long> {
+    @Query("SELECT v.version FROM GroupVersion v WHERE v.groupId = :groupId")
+    Optional<Long> findVersionByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query(value = "INSERT INTO group_versions (group_id, version) VALUES (:groupId, 1) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1", nativeQuery = true)
+    int incrementVersion(@Param("groupId") Long groupId);
+}
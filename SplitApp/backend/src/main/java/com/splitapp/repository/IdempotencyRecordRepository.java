@@ -0,0 +1,25 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    // Frees a key whose record expired but was not cleaned up yet; runs in the transaction that claims it again
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_records WHERE idempotency_key = :key AND expires_at <= :now",
+            nativeQuery = true)
+    int deleteExpiredByKey(@Param("key") String key, @Param("now") LocalDateTime now);
+}
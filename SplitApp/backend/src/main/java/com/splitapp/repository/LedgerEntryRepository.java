@@ -0,0 +1,30 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+    long countByGroupIdAndIdGreaterThan(Long groupId, Long id);
+
+    @Query("SELECT MAX(e.id) FROM LedgerEntry e WHERE e.groupId = :groupId")
+    Long findMaxIdByGroupId(@Param("groupId") Long groupId);
+
+    // Rows of [user id, summed delta] for entries in (afterId, upToId]
+    @Query("SELECT e.userId, SUM(e.amount) FROM LedgerEntry e "
+            + "WHERE e.groupId = :groupId AND e.id > :afterId AND e.id <= :upToId GROUP BY e.userId")
+    List<Object[]> sumByUserInRange(
+            @Param("groupId") Long groupId, @Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    // Rows of [user id, summed delta] for entries after afterId recorded no later than asOf
+    @Query("SELECT e.userId, SUM(e.amount) FROM LedgerEntry e "
+            + "WHERE e.groupId = :groupId AND e.id > :afterId AND e.recordedAt <= :asOf GROUP BY e.userId")
+    List<Object[]> sumByUserAsOf(
+            @Param("groupId") Long groupId, @Param("afterId") Long afterId, @Param("asOf") LocalDateTime asOf);
+}
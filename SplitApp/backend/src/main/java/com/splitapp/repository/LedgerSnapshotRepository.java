@@ -0,0 +1,15 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.LedgerSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface LedgerSnapshotRepository extends JpaRepository<LedgerSnapshot, Long> {
+    Optional<LedgerSnapshot> findFirstByGroupIdOrderByLastEntryIdDesc(Long groupId);
+    Optional<LedgerSnapshot> findFirstByGroupIdAndCoveredUntilLessThanEqualOrderByLastEntryIdDesc(
+            Long groupId, LocalDateTime asOf);
+}
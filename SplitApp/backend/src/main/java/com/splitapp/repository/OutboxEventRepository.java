@@ -0,0 +1,37 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    // Deliverable events nobody holds a lease on, oldest first; rows locked by another claimer are skipped
+    @Query(value = "SELECT id FROM outbox_events WHERE available_at <= :now "
+            + "AND (lease_until IS NULL OR lease_until < :now) "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Number> findDueIdsForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.leaseOwner = :owner, e.leaseUntil = :until WHERE e.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids AND e.leaseOwner = :owner")
+    int deleteDelivered(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    // Puts the event back for another attempt at retryAt; a null retryAt gives up on it
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.leaseOwner = NULL, e.leaseUntil = NULL, e.availableAt = :retryAt, "
+            + "e.attempts = e.attempts + 1, e.lastError = :error WHERE e.id = :id AND e.leaseOwner = :owner")
+    int recordFailure(@Param("id") Long id, @Param("owner") String owner,
+                      @Param("retryAt") LocalDateTime retryAt, @Param("error") String error);
+}
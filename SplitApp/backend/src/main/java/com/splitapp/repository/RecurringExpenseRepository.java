@@ -0,0 +1,41 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.RecurringExpense;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long> {
+    List<RecurringExpense> findByGroupIdOrderByNextRunAt(Long groupId);
+
+    // Due schedules nobody holds a lease on, oldest first; rows locked by another claimer are skipped, not waited for
+    @Query(value = "SELECT id FROM recurring_expenses WHERE next_run_at <= :now "
+            + "AND (lease_until IS NULL OR lease_until < :now) "
+            + "ORDER BY next_run_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Number> findDueIdsForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE RecurringExpense r SET r.leaseOwner = :owner, r.leaseUntil = :until WHERE r.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    // Extends leases this worker still holds; row locks taken here keep other claimers off until commit
+    @Modifying
+    @Query("UPDATE RecurringExpense r SET r.leaseUntil = :until WHERE r.id IN :ids AND r.leaseOwner = :owner")
+    int renewLease(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                   @Param("until") LocalDateTime until);
+
+    // Gives the schedule up until retryAt without moving it forward
+    @Modifying
+    @Query("UPDATE RecurringExpense r SET r.leaseOwner = NULL, r.leaseUntil = :retryAt, r.lastError = :error "
+            + "WHERE r.id = :id AND r.leaseOwner = :owner")
+    int recordFailure(@Param("id") Long id, @Param("owner") String owner,
+                      @Param("retryAt") LocalDateTime retryAt, @Param("error") String error);
+}
@@ -1,17 +1,29 @@
 package com.splitapp.repository;
 
-import com.splitapp.model.Group;
 import com.splitapp.model.Settlement;
-import com.splitapp.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface SettlementRepository extends JpaRepository<Settlement, Long> {
-    List<Settlement> findByGroup(Group group);
-    List<Settlement> findByFromUser(User user);
-    List<Settlement> findByToUser(User user);
+    List<Settlement> findByGroupId(Long groupId);
+    List<Settlement> findByFromUserId(Long userId);
+    List<Settlement> findByToUserId(Long userId);
     List<Settlement> findByStatus(Settlement.SettlementStatus status);
+    List<Settlement> findByGroupId(Long groupId, Pageable pageable);
+
+    @Query("SELECT s.group.id FROM Settlement s WHERE s.id = :id")
+    Long findGroupIdById(@Param("id") Long id);
+
+    // Rows of [from user id, to user id, total amount] for a group
+    @Query("SELECT s.fromUser.id, s.toUser.id, SUM(s.amount) FROM Settlement s "
+            + "WHERE s.group.id = :groupId AND s.status = :status "
+            + "GROUP BY s.fromUser.id, s.toUser.id")
+    List<Object[]> sumAmountsByGroupAndStatus(
+            @Param("groupId") Long groupId, @Param("status") Settlement.SettlementStatus status);
 }
\ No newline at end of file
@@ -2,12 +2,38 @@ package com.splitapp.repository;
 
 import com.splitapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Deleted users are gone as far as lookups are concerned; expenses and settlements still load them
+    @Override
+    @Query("SELECT u FROM User u WHERE u.deletedAt IS NULL")
+    List<User> findAll();
+
+    @Override
+    @Query("SELECT u FROM User u WHERE u.id = :id AND u.deletedAt IS NULL")
+    Optional<User> findById(@Param("id") Long id);
+
+    @Override
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM User u "
+            + "WHERE u.id = :id AND u.deletedAt IS NULL")
+    boolean existsById(@Param("id") Long id);
+
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    List<User> findByIdInAndDeletedAtIsNullOrderById(Collection<Long> ids);
+
+    @Query("SELECT u.id FROM User u WHERE u.deletedAt IS NOT NULL ORDER BY u.id")
+    List<Long> findDeletedIds();
+
+    @Query("SELECT u.deletedAt FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findDeletedAtById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.splitapp.repository;
+
+import com.splitapp.model.UserSpendRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface UserSpendRollupRepository extends JpaRepository<UserSpendRollup, Long> {
+    List<UserSpendRollup> findByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UserSpendRollup r WHERE r.groupId = :groupId")
+    int deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_spend_rollups "
+            + "(user_id, group_id, spend_month, counterparty_id, paid_amount, owed_amount) "
+            + "VALUES (:userId, :groupId, :month, :counterpartyId, :paid, :owed) "
+            + "ON DUPLICATE KEY UPDATE paid_amount = paid_amount + :paid, owed_amount = owed_amount + :owed",
+            nativeQuery = true)
+    int addToRollup(@Param("userId") Long userId, @Param("groupId") Long groupId, @Param("month") String month,
+                    @Param("counterpartyId") Long counterpartyId,
+                    @Param("paid") BigDecimal paid, @Param("owed") BigDecimal owed);
+}
@@ -0,0 +1,28 @@
+package com.splitapp.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the
+ * primary. Must sit behind a {@code LazyConnectionDataSourceProxy}: the
+ * read-only flag of a transaction is only known after the transaction manager
+ * has asked for a connection, so the physical connection has to be fetched
+ * lazily on the first statement.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReplicaRoutingContext.isPrimaryOnly()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,51 @@
+package com.splitapp.routing;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Pins a client's reads to the primary for a short window after it made a
+ * successful mutation. Clients are told apart by their Authorization header,
+ * falling back to the remote address.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWritesGuard guard;
+
+    public ReadYourWritesFilter(ReadYourWritesGuard guard) {
+        this.guard = guard;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = clientKey(request);
+        ReplicaRoutingContext.setPrimaryOnly(guard.hasRecentWrite(client));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingContext.clear();
+            if (isMutation(request.getMethod()) && response.getStatus() < 400) {
+                guard.recordWrite(client);
+            }
+        }
+    }
+
+    private static boolean isMutation(String method) {
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && !authorization.isEmpty()) {
+            return "auth:" + Integer.toHexString(authorization.hashCode());
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,45 @@
+package com.splitapp.routing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which clients wrote recently, so their reads can be kept on the
+ * primary until the replica has had time to catch up. The map is bounded:
+ * once it grows past {@code maxClients} the expired entries are swept, and if
+ * that is not enough it is cleared, which only costs a few replica reads.
+ */
+public class ReadYourWritesGuard {
+
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final int maxClients;
+
+    public ReadYourWritesGuard(long windowMillis, int maxClients) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxClients = maxClients;
+    }
+
+    public boolean hasRecentWrite(String client) {
+        Long writtenAt = lastWrites.get(client);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrites.remove(client, writtenAt);
+        return false;
+    }
+
+    public void recordWrite(String client) {
+        lastWrites.put(client, System.nanoTime());
+        if (lastWrites.size() > maxClients) {
+            long now = System.nanoTime();
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowNanos);
+            if (lastWrites.size() > maxClients) {
+                lastWrites.clear();
+            }
+        }
+    }
+}
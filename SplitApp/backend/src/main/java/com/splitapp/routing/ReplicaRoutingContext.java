@@ -0,0 +1,63 @@
+package com.splitapp.routing;
+
+/**
+ * Per-thread routing hint set by {@link ReadYourWritesFilter}. While a client is
+ * inside its read-your-writes window every query it triggers, read-only or not,
+ * goes to the primary. A request can also pin itself to the primary part way
+ * through, see {@link #pinToPrimary()}.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static boolean isPrimaryOnly() {
+        return Boolean.TRUE.equals(PRIMARY_ONLY.get());
+    }
+
+    public static void setPrimaryOnly(boolean primaryOnly) {
+        PRIMARY_ONLY.set(primaryOnly);
+    }
+
+    /**
+     * Sends the rest of the current request to the primary. Only takes effect
+     * inside a request scoped by {@link ReadYourWritesFilter}, so nothing is
+     * left behind on pooled threads when no replica is configured.
+     */
+    public static void pinToPrimary() {
+        if (PRIMARY_ONLY.get() != null) {
+            PRIMARY_ONLY.set(Boolean.TRUE);
+        }
+    }
+
+    public static void clear() {
+        PRIMARY_ONLY.remove();
+    }
+
+    /**
+     * Carries the caller's hint over to a task run on another thread, such as
+     * the sub-queries fanned out on the query executor.
+     */
+    public static Runnable propagate(Runnable task) {
+        Boolean primaryOnly = PRIMARY_ONLY.get();
+        return () -> {
+            Boolean previous = PRIMARY_ONLY.get();
+            restore(primaryOnly);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(Boolean primaryOnly) {
+        if (primaryOnly == null) {
+            PRIMARY_ONLY.remove();
+        } else {
+            PRIMARY_ONLY.set(primaryOnly);
+        }
+    }
+}
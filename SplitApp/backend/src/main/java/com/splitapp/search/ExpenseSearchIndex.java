@@ -0,0 +1,248 @@
+package com.splitapp.search;
+
+import com.splitapp.dto.ExpenseSearchHit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over expense description, amount and payer name,
+ * ranked with BM25. The last query term also matches as a prefix, so results
+ * follow the user while they type. Amounts are indexed in normalised form, so
+ * "1250", "1250.00" and "1,250" find the same expense.
+ * <p>
+ * Safe for concurrent use: searches share a read lock, updates take the write
+ * lock.
+ */
+public class ExpenseSearchIndex {
+
+    private static final Pattern TOKEN = Pattern.compile("\\p{L}+|\\p{N}+(?:[.,]\\p{N}+)*");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "at", "for", "from", "in", "my", "of", "on", "our", "that", "the", "this", "to", "with"));
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    // term -> expense id -> term frequency; sorted for prefix lookups
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    /**
+     * Adds the document, replacing any earlier version with the same id.
+     */
+    public void put(ExpenseSearchHit document) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = 0;
+        for (String term : documentTerms(document)) {
+            termFrequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.getExpenseId());
+            for (Map.Entry<String, Integer> term : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new HashMap<>())
+                        .put(document.getExpenseId(), term.getValue());
+            }
+            entries.put(document.getExpenseId(), new Entry(document, termFrequencies.keySet(), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long expenseId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(expenseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code limit} best matches, optionally restricted to one group.
+     */
+    public List<ExpenseSearchHit> search(String query, Long groupId, int limit) {
+        List<String> terms = new ArrayList<>();
+        for (String term : tokenize(query)) {
+            if (!STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = entries.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                for (Map.Entry<String, Map<Long, Integer>> match : matches(term, i == terms.size() - 1)) {
+                    Map<Long, Integer> posting = match.getValue();
+                    double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    double weight = match.getKey().equals(term) ? idf : idf * PREFIX_WEIGHT;
+                    for (Map.Entry<Long, Integer> hit : posting.entrySet()) {
+                        Entry entry = entries.get(hit.getKey());
+                        if (groupId != null && !groupId.equals(entry.document.getGroupId())) {
+                            continue;
+                        }
+                        int tf = hit.getValue();
+                        double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * entry.length / averageLength));
+                        scores.merge(hit.getKey(), weight * norm, Double::sum);
+                    }
+                }
+            }
+            return topHits(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String token = matcher.group();
+            tokens.add(Character.isDigit(token.charAt(0)) ? normalizeNumber(token) : token);
+        }
+        return tokens;
+    }
+
+    private static String normalizeNumber(String token) {
+        try {
+            return new BigDecimal(token.replace(",", "")).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return token;
+        }
+    }
+
+    private static List<String> documentTerms(ExpenseSearchHit document) {
+        List<String> terms = new ArrayList<>(tokenize(document.getDescription()));
+        terms.addAll(tokenize(document.getPaidBy()));
+        BigDecimal amount = document.getAmount();
+        if (amount != null) {
+            String exact = amount.stripTrailingZeros().toPlainString();
+            terms.add(exact);
+            // Lets "1250" find 1250.50 as well
+            String whole = amount.setScale(0, RoundingMode.DOWN).toPlainString();
+            if (!whole.equals(exact)) {
+                terms.add(whole);
+            }
+        }
+        return terms;
+    }
+
+    private List<Map.Entry<String, Map<Long, Integer>>> matches(String term, boolean prefix) {
+        if (!prefix) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(term, posting));
+        }
+        NavigableMap<String, Map<Long, Integer>> expansions =
+                postings.subMap(term, true, term + Character.MAX_VALUE, false);
+        List<Map.Entry<String, Map<Long, Integer>>> matches = new ArrayList<>();
+        for (Map.Entry<String, Map<Long, Integer>> expansion : expansions.entrySet()) {
+            if (matches.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matches.add(expansion);
+        }
+        return matches;
+    }
+
+    private List<ExpenseSearchHit> topHits(Map<Long, Double> scores, int limit) {
+        // Min-heap of the best hits so far; on equal scores the newer expense wins
+        Comparator<Map.Entry<Long, Double>> order = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(limit + 1, order);
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            best.offer(score);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<ExpenseSearchHit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Map.Entry<Long, Double> score = best.poll();
+            ExpenseSearchHit document = entries.get(score.getKey()).document;
+            hits.add(new ExpenseSearchHit(document.getExpenseId(), document.getGroupId(), document.getDescription(),
+                    document.getAmount(), document.getPaidBy(), document.getExpenseDate(), document.isArchived(),
+                    score.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private void removeLocked(Long expenseId) {
+        Entry existing = entries.remove(expenseId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(expenseId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= existing.length;
+    }
+
+    private static final class Entry {
+        private final ExpenseSearchHit document;
+        private final Set<String> terms;
+        private final int length;
+
+        private Entry(ExpenseSearchHit document, Set<String> terms, int length) {
+            this.document = document;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.splitapp.service;
+
+import com.splitapp.dto.MemberBalance;
+import com.splitapp.fx.FxRateSnapshot;
+import com.splitapp.model.Group;
+import com.splitapp.model.Settlement;
+import com.splitapp.model.User;
+import com.splitapp.repository.ExpenseSplitRepository;
+import com.splitapp.repository.SettlementRepository;
+import com.splitapp.repository.UserRepository;
+import com.splitapp.sharding.RouteToShard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class BalanceService {
+
+    private final ExpenseSplitRepository expenseSplitRepository;
+    private final SettlementRepository settlementRepository;
+    private final UserRepository userRepository;
+    private final LedgerService ledgerService;
+    private final FxRateService fxRateService;
+
+    @Autowired
+    public BalanceService(
+            ExpenseSplitRepository expenseSplitRepository,
+            SettlementRepository settlementRepository,
+            UserRepository userRepository,
+            LedgerService ledgerService,
+            FxRateService fxRateService) {
+        this.expenseSplitRepository = expenseSplitRepository;
+        this.settlementRepository = settlementRepository;
+        this.userRepository = userRepository;
+        this.ledgerService = ledgerService;
+        this.fxRateService = fxRateService;
+    }
+
+    /**
+     * Net balance of every member of the group, in the group's base currency:
+     * unsettled expense splits plus completed settlements. Aggregation happens
+     * in the database, so the cost is proportional to the number of member
+     * pairs, not the number of splits. Foreign-currency splits are summed per
+     * currency and day, then converted with the in-memory rate snapshot.
+     */
+    @RouteToShard(group = "#group.id")
+    public List<MemberBalance> getGroupBalances(Group group) {
+        Map<Long, BigDecimal> balances = zeroBalances(group);
+        for (Map.Entry<Long, BigDecimal> entry : computeBalances(group).entrySet()) {
+            balances.merge(entry.getKey(), entry.getValue(), BigDecimal::add);
+        }
+        return toMemberBalances(group, balances);
+    }
+
+    /**
+     * Net balances of the group recomputed from its unsettled splits and
+     * completed settlements, keyed by user id; users with nothing outstanding
+     * may be missing. Runs on the current shard.
+     */
+    public Map<Long, BigDecimal> computeBalances(Group group) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        String baseCurrency = fxRateService.baseCurrencyOf(group);
+        for (Object[] row : expenseSplitRepository.sumUnsettledAmountsByGroup(group.getId(), baseCurrency)) {
+            transfer(balances, (Long) row[0], (Long) row[1], (BigDecimal) row[2]);
+        }
+        
+        FxRateSnapshot rates = fxRateService.snapshot();
+        for (Object[] row : expenseSplitRepository.sumUnsettledForeignAmountsByGroup(group.getId(), baseCurrency)) {
+            LocalDate day = row[3] == null ? null : LocalDate.of(
+                    ((Number) row[3]).intValue(), ((Number) row[4]).intValue(), ((Number) row[5]).intValue());
+            transfer(balances, (Long) row[0], (Long) row[1],
+                    rates.convert((BigDecimal) row[6], (String) row[2], baseCurrency, day));
+        }
+        
+        // The payer of a completed settlement is owed back what they paid
+        for (Object[] row : settlementRepository.sumAmountsByGroupAndStatus(
+                group.getId(), Settlement.SettlementStatus.COMPLETED)) {
+            transfer(balances, (Long) row[1], (Long) row[0], (BigDecimal) row[2]);
+        }
+        return balances;
+    }
+
+    /**
+     * Net balance of every member as it stood at the given time, replayed from
+     * the ledger rather than the mutable expense and settlement tables.
+     */
+    @RouteToShard(group = "#group.id")
+    public List<MemberBalance> getGroupBalancesAsOf(Group group, LocalDateTime asOf) {
+        Map<Long, BigDecimal> balances = zeroBalances(group);
+        for (Map.Entry<Long, BigDecimal> entry : ledgerService.getBalancesAsOf(group.getId(), asOf).entrySet()) {
+            balances.merge(entry.getKey(), entry.getValue(), BigDecimal::add);
+        }
+        return toMemberBalances(group, balances);
+    }
+
+    private Map<Long, BigDecimal> zeroBalances(Group group) {
+        Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+        for (User member : group.getMembers()) {
+            balances.put(member.getId(), BigDecimal.ZERO);
+        }
+        return balances;
+    }
+
+    private List<MemberBalance> toMemberBalances(Group group, Map<Long, BigDecimal> balances) {
+        Map<Long, String> names = new HashMap<>();
+        for (User member : group.getMembers()) {
+            names.put(member.getId(), member.getName());
+        }
+        
+        // Former members can still carry a balance
+        List<Long> unknownIds = new ArrayList<>();
+        for (Long userId : balances.keySet()) {
+            if (!names.containsKey(userId)) {
+                unknownIds.add(userId);
+            }
+        }
+        if (!unknownIds.isEmpty()) {
+            for (User user : userRepository.findAllById(unknownIds)) {
+                names.put(user.getId(), user.getName());
+            }
+        }
+        
+        List<MemberBalance> result = new ArrayList<>();
+        for (Map.Entry<Long, BigDecimal> entry : balances.entrySet()) {
+            result.add(new MemberBalance(entry.getKey(), names.get(entry.getKey()), entry.getValue()));
+        }
+        return result;
+    }
+
+    private void transfer(Map<Long, BigDecimal> balances, Long debtorId, Long creditorId, BigDecimal amount) {
+        balances.merge(debtorId, amount.negate(), BigDecimal::add);
+        balances.merge(creditorId, amount, BigDecimal::add);
+    }
+}
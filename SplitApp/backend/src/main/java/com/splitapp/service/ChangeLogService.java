@@ -0,0 +1,158 @@
+package com.splitapp.service;
+
+import com.splitapp.model.ChangeLogEntry;
+import com.splitapp.repository.ChangeLogRepository;
+import com.splitapp.repository.ChangeSequenceRepository;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records every change to the rows clients sync (expenses, splits,
+ * settlements and group membership) in the change log, under a sequence
+ * number that only grows. Changes are buffered for the transaction and
+ * numbered just before it commits, while holding the sequence row: numbers
+ * are handed out in commit order without gaps, so a reader that sees the
+ * sequence at N also sees every change up to N. With sharding each shard has
+ * its own sequence.
+ */
+@Service
+public class ChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogService.class);
+    private static final Object PENDING_KEY = new Object();
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int purgeChunkSize;
+    private final AtomicBoolean purging = new AtomicBoolean();
+
+    @Autowired
+    public ChangeLogService(
+            ChangeLogRepository changeLogRepository,
+            ChangeSequenceRepository changeSequenceRepository,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.sync.retention-days:90}") int retentionDays,
+            @Value("${splitapp.sync.purge-chunk-size:1000}") int purgeChunkSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.purgeChunkSize = purgeChunkSize;
+    }
+
+    /**
+     * Records a change made by the current transaction. Recording the same row
+     * twice keeps only the last operation. Memberships are identified by the
+     * user id, so the group is part of the key.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long groupId, ChangeLogEntry.EntityType entityType, Long entityId,
+                       ChangeLogEntry.Operation operation) {
+        if (groupId == null || entityId == null) {
+            return;
+        }
+        ChangeLogEntry entry = new ChangeLogEntry();
+        entry.setGroupId(groupId);
+        entry.setEntityType(entityType);
+        entry.setEntityId(entityId);
+        entry.setOperation(operation);
+        String key = entityType + ":" + groupId + ":" + entityId;
+        Map<String, ChangeLogEntry> pending = pendingChanges();
+        pending.remove(key);
+        pending.put(key, entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ChangeLogEntry> pendingChanges() {
+        Map<String, ChangeLogEntry> pending =
+                (Map<String, ChangeLogEntry>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending != null) {
+            return pending;
+        }
+        Map<String, ChangeLogEntry> created = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(PENDING_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                writeChanges(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+            }
+        });
+        return created;
+    }
+
+    private void writeChanges(Map<String, ChangeLogEntry> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        changeSequenceRepository.advance(pending.size());
+        long seq = changeSequenceRepository.findLastSeq() - pending.size();
+        LocalDateTime now = LocalDateTime.now();
+        for (ChangeLogEntry entry : pending.values()) {
+            changeLogRepository.insert(++seq, entry.getGroupId(), entry.getEntityType().name(),
+                    entry.getEntityId(), entry.getOperation().name(), now);
+        }
+    }
+
+    /**
+     * Drops changes older than the retention period. Clients whose cursor is
+     * older than what was dropped are told to download their lists again.
+     */
+    @Scheduled(cron = "${splitapp.sync.purge-cron:0 0 4 * * *}")
+    public void purgeExpiredChanges() {
+        if (!purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            shardRouter.forEachShard(() -> purgeShard(cutoff));
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private void purgeShard(LocalDateTime cutoff) {
+        Optional<Long> through = changeLogRepository.findLastSeqChangedBefore(cutoff);
+        if (!through.isPresent()) {
+            return;
+        }
+        // Marked first, so a client never resumes from a cursor whose changes are half gone
+        transactionTemplate.executeWithoutResult(status -> changeSequenceRepository.markPurgedThrough(through.get()));
+        int purged = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(
+                    status -> changeLogRepository.deleteThrough(through.get(), purgeChunkSize));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+        logger.info("Purged {} changes up to sequence number {}", purged, through.get());
+    }
+}
@@ -0,0 +1,400 @@
+package com.splitapp.service;
+
+import com.splitapp.dto.DeletionProgress;
+import com.splitapp.model.ChangeLogEntry;
+import com.splitapp.repository.ChangeLogRepository;
+import com.splitapp.repository.GroupRepository;
+import com.splitapp.repository.UserRepository;
+import com.splitapp.sharding.ReferenceDataMirror;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purges what deleted groups and users leave behind. Deleting only sets
+ * {@code deleted_at}, which hides the row from every lookup at once; this
+ * service then removes the dependent rows in chunks of {@code chunk-size}, one
+ * short transaction each, pausing between chunks so a group with years of
+ * expenses never holds locks or grows the undo log for long.
+ * <p>
+ * A group is purged on its own shard, children before parents, and its row
+ * goes last. A user is taken out of their groups; the row itself is removed
+ * only once no expense, split, settlement or group refers to it, and is kept
+ * otherwise so the other members' history and balances stay intact.
+ * <p>
+ * Purges run on one background thread, started after each delete and on a
+ * periodic sweep that picks up deletions left over from a restart or a failed
+ * chunk. Progress is kept in memory since startup. A retained user is checked
+ * again only once something that could have released them has changed: a
+ * deletion was logged on any shard, or a group was purged.
+ */
+@Service
+public class DeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletionService.class);
+
+    // Rows owned by a group, dependents first; :ownerId is the group id
+    private static final List<PurgeStep> GROUP_STEPS = Arrays.asList(
+            new PurgeStep("recurring_expenses", "RecurringExpense", "x.groupId = :ownerId", true),
+            new PurgeStep("expense_attachments", "ExpenseAttachment",
+                    "x.expenseId IN (SELECT e.id FROM Expense e WHERE e.group.id = :ownerId)", false),
+            new PurgeStep("expense_splits", "ExpenseSplit", "x.expense.group.id = :ownerId", false),
+            new PurgeStep("expenses", "Expense", "x.group.id = :ownerId", false, true),
+            new PurgeStep("settlements", "Settlement", "x.group.id = :ownerId", false),
+            new PurgeStep("archived_expense_splits", "ArchivedExpenseSplit",
+                    "x.expenseId IN (SELECT a.id FROM ArchivedExpense a WHERE a.groupId = :ownerId)", false),
+            new PurgeStep("archived_expenses", "ArchivedExpense", "x.groupId = :ownerId", false, true),
+            new PurgeStep("expense_monthly_summaries", "ExpenseMonthlySummary", "x.groupId = :ownerId", false),
+            new PurgeStep("group_spend_rollups", "GroupSpendRollup", "x.groupId = :ownerId", false),
+            new PurgeStep("user_spend_rollups", "UserSpendRollup", "x.groupId = :ownerId", false),
+            new PurgeStep("ledger_entries", "LedgerEntry", "x.groupId = :ownerId", false),
+            new PurgeStep("ledger_snapshots", "LedgerSnapshot", "x.groupId = :ownerId", true),
+            new PurgeStep("group_members", "GroupMember", "x.group.id = :ownerId", false));
+
+    private static final PurgeStep USER_ROLLUPS =
+            new PurgeStep("user_spend_rollups", "UserSpendRollup", "x.userId = :ownerId", false);
+
+    // Rows that keep a deleted user's row in place; :userId is the user id
+    private static final List<String> USER_REFERENCES = Arrays.asList(
+            "SELECT x.id FROM Expense x WHERE x.paidBy.id = :userId",
+            "SELECT x.id FROM ExpenseSplit x WHERE x.user.id = :userId",
+            "SELECT x.id FROM Settlement x WHERE x.fromUser.id = :userId OR x.toUser.id = :userId",
+            "SELECT x.id FROM GroupMember x WHERE x.user.id = :userId");
+
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final ChangeLogRepository changeLogRepository;
+    private final GroupService groupService;
+    private final ExpenseSearchService expenseSearchService;
+    private final ReferenceDataMirror referenceDataMirror;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "deletion-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final Map<Long, Purge> groupPurges = new ConcurrentHashMap<>();
+    private final Map<Long, Purge> userPurges = new ConcurrentHashMap<>();
+    // Groups purged since startup; purging logs no changes of its own
+    private final AtomicLong groupsPurged = new AtomicLong();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public DeletionService(
+            GroupRepository groupRepository,
+            UserRepository userRepository,
+            ChangeLogRepository changeLogRepository,
+            GroupService groupService,
+            ExpenseSearchService expenseSearchService,
+            ReferenceDataMirror referenceDataMirror,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.deletion.enabled:true}") boolean enabled,
+            @Value("${splitapp.deletion.chunk-size:500}") int chunkSize,
+            @Value("${splitapp.deletion.pause-ms:100}") long pauseMillis) {
+        this.groupRepository = groupRepository;
+        this.userRepository = userRepository;
+        this.changeLogRepository = changeLogRepository;
+        this.groupService = groupService;
+        this.expenseSearchService = expenseSearchService;
+        this.referenceDataMirror = referenceDataMirror;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Starts purging everything deleted so far, unless a purge is already
+     * waiting to start. Call after the deleting transaction has committed.
+     */
+    public void requestPurge() {
+        if (enabled && queued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                queued.set(false);
+                purgeDeleted();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${splitapp.deletion.sweep-ms:3600000}",
+            initialDelayString = "${splitapp.deletion.initial-delay-ms:60000}")
+    public void sweep() {
+        requestPurge();
+    }
+
+    /**
+     * @return the progress of purging the group or user, or empty if it was
+     *         never deleted, or was purged before the last restart
+     */
+    public Optional<DeletionProgress> getProgress(DeletionProgress.Target target, Long id) {
+        Purge purge = (target == DeletionProgress.Target.GROUP ? groupPurges : userPurges).get(id);
+        if (purge != null) {
+            return Optional.of(purge.toProgress());
+        }
+        Optional<LocalDateTime> deletedAt = target == DeletionProgress.Target.GROUP
+                ? groupRepository.findDeletedAtById(id)
+                : userRepository.findDeletedAtById(id);
+        return deletedAt.map(at -> {
+            DeletionProgress progress = new DeletionProgress();
+            progress.setTarget(target);
+            progress.setId(id);
+            progress.setStatus(DeletionProgress.Status.PENDING);
+            return progress;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Groups first, so the users they refer to are free to go in the same pass
+    private void purgeDeleted() {
+        for (Long groupId : groupRepository.findDeletedIds()) {
+            purgeGroup(groupId);
+        }
+        long changes = changeCount();
+        for (Long userId : userRepository.findDeletedIds()) {
+            Purge purge = userPurges.get(userId);
+            if (purge == null || !purge.isRetainedAt(changes)) {
+                purgeUser(userId);
+            }
+        }
+    }
+
+    // Changes whenever anything that may refer to a user could have gone away: expenses, settlements and
+    // memberships are only ever released by deleting them, which is logged
+    private long changeCount() {
+        return groupsPurged.get() + shardRouter.scatter(() -> Collections.singletonList(
+                changeLogRepository.findLastSeqOf(ChangeLogEntry.Operation.DELETE)))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    private void purgeGroup(Long groupId) {
+        Purge purge = start(groupPurges, DeletionProgress.Target.GROUP, groupId);
+        try {
+            ShardContext.callOn(shardRouter.shardForGroup(groupId), () -> {
+                for (PurgeStep step : GROUP_STEPS) {
+                    purgeAll(purge, step, groupId);
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    entityManager.createQuery("DELETE FROM GroupVersion v WHERE v.groupId = :groupId")
+                            .setParameter("groupId", groupId)
+                            .executeUpdate();
+                    entityManager.createQuery("DELETE FROM Group g WHERE g.id = :groupId")
+                            .setParameter("groupId", groupId)
+                            .executeUpdate();
+                    referenceDataMirror.mirrorGroupAfterCommit(groupId);
+                });
+                return null;
+            });
+            groupsPurged.incrementAndGet();
+            purge.add("user_groups", 1);
+            purge.finish(DeletionProgress.Status.COMPLETED);
+            logger.info("Purged deleted group {}: {}", groupId, purge.toProgress().getRowsPurged());
+        } catch (RuntimeException e) {
+            purge.finish(DeletionProgress.Status.FAILED);
+            logger.warn("Failed to purge deleted group {}; retrying on the next sweep", groupId, e);
+        }
+    }
+
+    private void purgeUser(Long userId) {
+        Purge purge = start(userPurges, DeletionProgress.Target.USER, userId);
+        try {
+            for (Long groupId : groupRepository.findIdsByMemberId(userId)) {
+                if (groupService.removeDeletedMember(groupId, userId)) {
+                    purge.add("group_members", 1);
+                    pause();
+                }
+            }
+            // Taken before the check, so a change made while it runs is not missed
+            long changes = changeCount();
+            if (isReferenced(userId)) {
+                purge.retain(changes);
+                return;
+            }
+            shardRouter.forEachShard(() -> purgeAll(purge, USER_ROLLUPS, userId));
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.createQuery("DELETE FROM User u WHERE u.id = :userId")
+                        .setParameter("userId", userId)
+                        .executeUpdate();
+                referenceDataMirror.mirrorUserAfterCommit(userId);
+            });
+            purge.add("users", 1);
+            purge.finish(DeletionProgress.Status.COMPLETED);
+            logger.info("Purged deleted user {}: {}", userId, purge.toProgress().getRowsPurged());
+        } catch (RuntimeException e) {
+            purge.finish(DeletionProgress.Status.FAILED);
+            logger.warn("Failed to purge deleted user {}; retrying on the next sweep", userId, e);
+        }
+    }
+
+    private boolean isReferenced(Long userId) {
+        if (groupRepository.existsByCreatorId(userId)) {
+            return true;
+        }
+        List<Boolean> referenced = shardRouter.scatter(() -> Collections.singletonList(USER_REFERENCES.stream()
+                .anyMatch(query -> !entityManager.createQuery(query)
+                        .setParameter("userId", userId)
+                        .setMaxResults(1)
+                        .getResultList()
+                        .isEmpty())));
+        return referenced.contains(true);
+    }
+
+    private void purgeAll(Purge purge, PurgeStep step, Long ownerId) {
+        while (true) {
+            Integer removed = transactionTemplate.execute(status -> purgeChunk(step, ownerId));
+            if (removed == null || removed == 0) {
+                return;
+            }
+            purge.add(step.table, removed);
+            pause();
+        }
+    }
+
+    private int purgeChunk(PurgeStep step, Long ownerId) {
+        if (step.removeEach) {
+            // Removed through the entity manager so their element collection rows go with them
+            List<?> rows = entityManager.createQuery("SELECT x FROM " + step.entity + " x WHERE " + step.owner)
+                    .setParameter("ownerId", ownerId)
+                    .setMaxResults(chunkSize)
+                    .getResultList();
+            rows.forEach(entityManager::remove);
+            return rows.size();
+        }
+        List<Long> ids = entityManager.createQuery(
+                        "SELECT x.id FROM " + step.entity + " x WHERE " + step.owner, Long.class)
+                .setParameter("ownerId", ownerId)
+                .setMaxResults(chunkSize)
+                .getResultList();
+        if (!ids.isEmpty()) {
+            entityManager.createQuery("DELETE FROM " + step.entity + " x WHERE x.id IN :ids")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            if (step.searchIndexed) {
+                expenseSearchService.removeAllAfterCommit(ids);
+            }
+        }
+        return ids.size();
+    }
+
+    private static Purge start(Map<Long, Purge> purges, DeletionProgress.Target target, Long id) {
+        Purge purge = purges.computeIfAbsent(id, key -> new Purge(target, key));
+        purge.restart();
+        return purge;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PurgeStep {
+        private final String table;
+        private final String entity;
+        // JPQL condition on x that selects the rows owned by :ownerId
+        private final String owner;
+        private final boolean removeEach;
+        // Rows are expenses, live or archived, that the search index holds
+        private final boolean searchIndexed;
+
+        PurgeStep(String table, String entity, String owner, boolean removeEach) {
+            this(table, entity, owner, removeEach, false);
+        }
+
+        PurgeStep(String table, String entity, String owner, boolean removeEach, boolean searchIndexed) {
+            this.table = table;
+            this.entity = entity;
+            this.owner = owner;
+            this.removeEach = removeEach;
+            this.searchIndexed = searchIndexed;
+        }
+    }
+
+    private static class Purge {
+        private final DeletionProgress.Target target;
+        private final Long id;
+        private final Map<String, Long> rowsPurged = new LinkedHashMap<>();
+        private volatile DeletionProgress.Status status;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        // The change count a retained user was last checked at
+        private volatile long retainedAt;
+
+        Purge(DeletionProgress.Target target, Long id) {
+            this.target = target;
+            this.id = id;
+        }
+
+        void restart() {
+            startedAt = LocalDateTime.now();
+            finishedAt = null;
+            status = DeletionProgress.Status.PURGING;
+        }
+
+        void retain(long changes) {
+            retainedAt = changes;
+            finish(DeletionProgress.Status.RETAINED);
+        }
+
+        boolean isRetainedAt(long changes) {
+            return status == DeletionProgress.Status.RETAINED && retainedAt == changes;
+        }
+
+        synchronized void add(String table, long rows) {
+            rowsPurged.merge(table, rows, Long::sum);
+        }
+
+        void finish(DeletionProgress.Status finalStatus) {
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        synchronized DeletionProgress toProgress() {
+            DeletionProgress progress = new DeletionProgress();
+            progress.setTarget(target);
+            progress.setId(id);
+            progress.setStatus(status);
+            progress.setStartedAt(startedAt);
+            progress.setFinishedAt(finishedAt);
+            progress.setRowsPurged(new LinkedHashMap<>(rowsPurged));
+            return progress;
+        }
+    }
+}
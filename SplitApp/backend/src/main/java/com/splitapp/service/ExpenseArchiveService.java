@@ -0,0 +1,246 @@
+package com.splitapp.service;
+
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.model.ArchivedExpense;
+import com.splitapp.model.ArchivedExpenseSplit;
+import com.splitapp.model.ChangeLogEntry;
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseMonthlySummary;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.repository.ArchivedExpenseRepository;
+import com.splitapp.repository.ArchivedExpenseSplitRepository;
+import com.splitapp.repository.ExpenseMonthlySummaryRepository;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.ExpenseSplitRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves fully settled, old expenses out of the hot {@code expenses} and
+ * {@code expense_splits} tables into their archive counterparts, and folds them
+ * into a per-group, per-month summary row, totalled in the group's base
+ * currency. Works in small chunks, one short transaction each, pausing between
+ * chunks so it never competes with live traffic for long.
+ * <p>
+ * Each chunk transaction claims its expense rows with
+ * {@code FOR UPDATE SKIP LOCKED}, so archivers on other instances pass over
+ * them instead of moving the same rows twice; the claim lasts exactly as long
+ * as the move. The group locks are then taken and the splits re-checked, so an
+ * expense that stopped being fully settled after it was picked stays put.
+ */
+@Service
+public class ExpenseArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseArchiveService.class);
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseSplitRepository expenseSplitRepository;
+    private final ArchivedExpenseRepository archivedExpenseRepository;
+    private final ArchivedExpenseSplitRepository archivedExpenseSplitRepository;
+    private final ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository;
+    private final GroupVersionService groupVersionService;
+    private final FxRateService fxRateService;
+    private final ChangeLogService changeLogService;
+    private final GroupLockRegistry groupLockRegistry;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ExpenseArchiveService(
+            ExpenseRepository expenseRepository,
+            ExpenseSplitRepository expenseSplitRepository,
+            ArchivedExpenseRepository archivedExpenseRepository,
+            ArchivedExpenseSplitRepository archivedExpenseSplitRepository,
+            ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository,
+            GroupVersionService groupVersionService,
+            FxRateService fxRateService,
+            ChangeLogService changeLogService,
+            GroupLockRegistry groupLockRegistry,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.archive.enabled:true}") boolean enabled,
+            @Value("${splitapp.archive.min-age-days:365}") int minAgeDays,
+            @Value("${splitapp.archive.chunk-size:200}") int chunkSize,
+            @Value("${splitapp.archive.pause-ms:250}") long pauseMillis) {
+        this.expenseRepository = expenseRepository;
+        this.expenseSplitRepository = expenseSplitRepository;
+        this.archivedExpenseRepository = archivedExpenseRepository;
+        this.archivedExpenseSplitRepository = archivedExpenseSplitRepository;
+        this.expenseMonthlySummaryRepository = expenseMonthlySummaryRepository;
+        this.groupVersionService = groupVersionService;
+        this.fxRateService = fxRateService;
+        this.changeLogService = changeLogService;
+        this.groupLockRegistry = groupLockRegistry;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${splitapp.archive.cron:0 30 3 * * *}")
+    public void archiveSettledExpenses() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+            shardRouter.forEachShard(() -> archiveShard(cutoff));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @RouteToShard(group = "#groupId")
+    public Page<ArchivedExpense> getArchivedExpensesByGroup(Long groupId, Pageable pageable) {
+        return archivedExpenseRepository.findByGroupId(groupId, pageable);
+    }
+
+    @RouteToShard(row = "#expenseId")
+    public List<ArchivedExpenseSplit> getArchivedExpenseSplits(Long expenseId) {
+        return archivedExpenseSplitRepository.findByExpenseId(expenseId);
+    }
+
+    @RouteToShard(group = "#groupId")
+    public List<ExpenseMonthlySummary> getMonthlySummaries(Long groupId) {
+        return expenseMonthlySummaryRepository.findByGroupIdOrderByMonthDesc(groupId);
+    }
+
+    private void archiveShard(LocalDateTime cutoff) {
+        long afterId = 0L;
+        int[] archived = {0};
+        while (true) {
+            long from = afterId;
+            List<Long> claimed = transactionTemplate.execute(status -> {
+                List<Long> ids = claimChunk(from, cutoff);
+                if (!ids.isEmpty()) {
+                    List<Long> settled = expenseRepository.findFullySettledIds(ids);
+                    if (!settled.isEmpty()) {
+                        archiveChunk(settled);
+                        archived[0] += settled.size();
+                    }
+                }
+                return ids;
+            });
+            if (claimed == null || claimed.isEmpty()) {
+                break;
+            }
+            afterId = claimed.get(claimed.size() - 1);
+            pause();
+        }
+        logger.info("Archived {} settled expenses older than {}", archived[0], cutoff);
+    }
+
+    // Locks the next archivable rows for this transaction, then their groups in lock order
+    private List<Long> claimChunk(long afterId, LocalDateTime cutoff) {
+        List<Long> ids = new ArrayList<>();
+        TreeSet<Long> groupIds = new TreeSet<>(groupLockRegistry.lockOrder());
+        for (Object[] row : expenseRepository.claimArchivable(afterId, cutoff, chunkSize)) {
+            ids.add(((Number) row[0]).longValue());
+            groupIds.add(((Number) row[1]).longValue());
+        }
+        groupIds.forEach(groupLockRegistry::lockForTransaction);
+        return ids;
+    }
+
+    private void archiveChunk(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Expense> expenses = expenseRepository.findAllById(ids);
+        // group id -> month -> [count, total]
+        Map<Long, Map<String, BigDecimal[]>> summaries = new TreeMap<>();
+
+        for (Expense expense : expenses) {
+            ArchivedExpense archived = new ArchivedExpense();
+            archived.setId(expense.getId());
+            archived.setGroupId(expense.getGroup().getId());
+            archived.setPaidById(expense.getPaidBy().getId());
+            archived.setDescription(expense.getDescription());
+            archived.setAmount(expense.getAmount());
+            archived.setCurrency(expense.getCurrency());
+            archived.setBaseAmount(expense.getBaseAmount());
+            archived.setExpenseDate(expense.getExpenseDate());
+            archived.setCreatedAt(expense.getCreatedAt());
+            archived.setUpdatedAt(expense.getUpdatedAt());
+            archived.setArchivedAt(now);
+            entityManager.persist(archived);
+            changeLogService.record(archived.getGroupId(), ChangeLogEntry.EntityType.EXPENSE, archived.getId(),
+                    ChangeLogEntry.Operation.DELETE);
+
+            BigDecimal[] summary = summaries
+                    .computeIfAbsent(archived.getGroupId(), groupId -> new TreeMap<>())
+                    .computeIfAbsent(expense.getExpenseDate().format(MONTH_FORMAT),
+                            month -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+            summary[0] = summary[0].add(BigDecimal.ONE);
+            summary[1] = summary[1].add(fxRateService.baseAmountOf(expense));
+        }
+
+        for (ExpenseSplit split : expenseSplitRepository.findByExpenseIdIn(ids)) {
+            ArchivedExpenseSplit archived = new ArchivedExpenseSplit();
+            archived.setId(split.getId());
+            archived.setExpenseId(split.getExpense().getId());
+            archived.setUserId(split.getUser().getId());
+            archived.setAmount(split.getAmount());
+            archived.setBaseAmount(split.getBaseAmount());
+            archived.setSettled(split.isSettled());
+            archived.setCreatedAt(split.getCreatedAt());
+            entityManager.persist(archived);
+            // Clients syncing the group drop the split along with its expense
+            changeLogService.record(split.getExpense().getGroup().getId(), ChangeLogEntry.EntityType.EXPENSE_SPLIT,
+                    split.getId(), ChangeLogEntry.Operation.DELETE);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        expenseSplitRepository.deleteByExpenseIds(ids);
+        expenseRepository.deleteAllByIdInBatch(ids);
+
+        // Sorted by group id so concurrent writers always take row locks in the same order
+        for (Map.Entry<Long, Map<String, BigDecimal[]>> group : summaries.entrySet()) {
+            for (Map.Entry<String, BigDecimal[]> month : group.getValue().entrySet()) {
+                expenseMonthlySummaryRepository.addToSummary(group.getKey(), month.getKey(),
+                        month.getValue()[0].longValue(), month.getValue()[1]);
+            }
+            groupVersionService.bumpVersion(group.getKey());
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
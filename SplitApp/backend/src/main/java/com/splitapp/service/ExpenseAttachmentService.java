@@ -0,0 +1,165 @@
+package com.splitapp.service;
+
+import com.splitapp.attachment.BlobStore;
+import com.splitapp.model.ExpenseAttachment;
+import com.splitapp.repository.ExpenseAttachmentRepository;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Receipt attachments. The bytes go to the {@link BlobStore}, keyed by their
+ * SHA-256, and only the metadata row goes in the database, on the shard of
+ * the expense. The blob is written before the row: a crash in between leaves
+ * an unreferenced blob, which the sweep removes, never a row without content.
+ */
+@Service
+public class ExpenseAttachmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseAttachmentService.class);
+
+    private final ExpenseAttachmentRepository expenseAttachmentRepository;
+    private final ExpenseRepository expenseRepository;
+    private final BlobStore blobStore;
+    private final ShardRouter shardRouter;
+    private final long maxSizeBytes;
+    private final Set<String> allowedTypes;
+    private final Duration sweepGrace;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @Autowired
+    public ExpenseAttachmentService(
+            ExpenseAttachmentRepository expenseAttachmentRepository,
+            ExpenseRepository expenseRepository,
+            BlobStore blobStore,
+            ShardRouter shardRouter,
+            @Value("${splitapp.attachments.max-size-bytes:10485760}") long maxSizeBytes,
+            @Value("${splitapp.attachments.allowed-types:image/jpeg,image/png,image/heic,image/webp,application/pdf}")
+                    List<String> allowedTypes,
+            @Value("${splitapp.attachments.sweep-grace-hours:24}") long sweepGraceHours) {
+        this.expenseAttachmentRepository = expenseAttachmentRepository;
+        this.expenseRepository = expenseRepository;
+        this.blobStore = blobStore;
+        this.shardRouter = shardRouter;
+        this.maxSizeBytes = maxSizeBytes;
+        this.allowedTypes = allowedTypes.stream()
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.sweepGrace = Duration.ofHours(sweepGraceHours);
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /**
+     * @return the media type without parameters, or null if attachments of
+     *         this type are not accepted
+     */
+    public String normalizeContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return allowedTypes.contains(mediaType) ? mediaType : null;
+    }
+
+    /**
+     * Streams the content into the blob store and attaches it to the expense.
+     * Not transactional: no connection is held while the upload is read.
+     *
+     * @return the attachment, or empty if the expense does not exist
+     * @throws com.splitapp.attachment.BlobTooLargeException when the content exceeds the size limit
+     */
+    public Optional<ExpenseAttachment> upload(Long expenseId, String contentType, String fileName,
+                                              InputStream content) throws IOException {
+        int shard = shardRouter.shardForRow(expenseId);
+        if (!ShardContext.callOn(shard, () -> expenseRepository.existsById(expenseId))) {
+            return Optional.empty();
+        }
+        BlobStore.StoredBlob blob = blobStore.store(content, maxSizeBytes);
+
+        ExpenseAttachment attachment = new ExpenseAttachment();
+        attachment.setExpenseId(expenseId);
+        attachment.setSha256(blob.getSha256());
+        attachment.setSizeBytes(blob.getSize());
+        attachment.setContentType(contentType);
+        attachment.setFileName(fileName);
+        return Optional.of(ShardContext.callOn(shard, () -> expenseAttachmentRepository.save(attachment)));
+    }
+
+    @RouteToShard(row = "#expenseId")
+    @Transactional(readOnly = true)
+    public List<ExpenseAttachment> getAttachments(Long expenseId) {
+        return expenseAttachmentRepository.findByExpenseIdOrderById(expenseId);
+    }
+
+    @RouteToShard(row = "#expenseId")
+    @Transactional(readOnly = true)
+    public Optional<ExpenseAttachment> getAttachment(Long expenseId, Long attachmentId) {
+        return expenseAttachmentRepository.findByIdAndExpenseId(attachmentId, expenseId);
+    }
+
+    public Path getContentPath(ExpenseAttachment attachment) {
+        return blobStore.pathOf(attachment.getSha256());
+    }
+
+    /**
+     * Removes the attachment from the expense. The blob stays until the sweep
+     * finds nothing referring to it.
+     */
+    @RouteToShard(row = "#expenseId")
+    @Transactional
+    public boolean deleteAttachment(Long expenseId, Long attachmentId) {
+        Optional<ExpenseAttachment> attachment =
+                expenseAttachmentRepository.findByIdAndExpenseId(attachmentId, expenseId);
+        attachment.ifPresent(expenseAttachmentRepository::delete);
+        return attachment.isPresent();
+    }
+
+    /**
+     * Deletes blobs no attachment refers to any more. Only blobs untouched for
+     * the grace period are considered, so one stored by an upload whose row
+     * is not committed yet is left alone.
+     */
+    @Scheduled(cron = "${splitapp.attachments.sweep-cron:0 15 4 * * *}")
+    public void sweepOrphanedBlobs() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int deleted = blobStore.sweep(Instant.now().minus(sweepGrace), sha256 -> !shardRouter.scatter(
+                    () -> expenseAttachmentRepository.existsBySha256(sha256)
+                            ? Collections.singletonList(true)
+                            : Collections.<Boolean>emptyList()).isEmpty());
+            if (deleted > 0) {
+                logger.info("Swept {} orphaned attachment files", deleted);
+            }
+        } catch (IOException e) {
+            logger.warn("Attachment sweep failed", e);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.splitapp.service;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional group-commit mode for expense creation. Concurrent callers enqueue
+ * their expense on a bounded lock-free buffer; a single flusher thread writes
+ * up to {@code max-batch-size} of them in one transaction every
+ * {@code max-delay-ms}, so a burst of writes pays for one commit instead of one
+ * per request. Requests are validated one by one, then written together through
+ * batched inserts. Each caller blocks until the shared commit, for at most
+ * {@code timeout-ms}, and then receives its own result or its own validation error.
+ * <p>
+ * Callers that already run inside a transaction, or that find the buffer full,
+ * write directly instead of being coalesced.
+ */
+@Service
+public class ExpenseGroupCommitter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseGroupCommitter.class);
+
+    private final ExpenseService expenseService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final ConcurrentLinkedQueue<PendingExpense> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running;
+    private volatile Thread flusher;
+
+    @Autowired
+    public ExpenseGroupCommitter(
+            ExpenseService expenseService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.expenses.group-commit.enabled:false}") boolean enabled,
+            @Value("${splitapp.expenses.group-commit.max-batch-size:64}") int maxBatchSize,
+            @Value("${splitapp.expenses.group-commit.max-delay-ms:5}") long maxDelayMillis,
+            @Value("${splitapp.expenses.group-commit.queue-capacity:4096}") int queueCapacity,
+            @Value("${splitapp.expenses.group-commit.timeout-ms:5000}") long timeoutMillis) {
+        this.expenseService = expenseService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runFlusher, "expense-group-commit");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Whatever was enqueued after the flusher last looked would otherwise wait forever
+        PendingExpense pending;
+        while ((pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            pending.result.completeExceptionally(shuttingDown());
+        }
+    }
+
+    public Expense createExpense(Expense expense, List<ExpenseSplit> splits) {
+        if (!running || TransactionSynchronizationManager.isActualTransactionActive() || !tryReserveSlot()) {
+            return expenseService.createExpense(expense, splits);
+        }
+
+        PendingExpense pending = new PendingExpense(expense, splits);
+        queue.offer(pending);
+        LockSupport.unpark(flusher);
+        // stop() may have drained the queue between the check above and the offer
+        if (!running && queue.remove(pending)) {
+            queued.decrementAndGet();
+            pending.result.completeExceptionally(shuttingDown());
+        }
+        try {
+            return pending.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw abandon(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abandon(pending);
+        }
+    }
+
+    // Still queued means never written; once the flusher has taken it, the commit may yet succeed
+    private GroupCommitTimeoutException abandon(PendingExpense pending) {
+        boolean queuedOnly = queue.remove(pending);
+        if (queuedOnly) {
+            queued.decrementAndGet();
+        }
+        pending.result.cancel(false);
+        return new GroupCommitTimeoutException(timeoutMillis, !queuedOnly);
+    }
+
+    private static IllegalStateException shuttingDown() {
+        return new IllegalStateException("Expense group commit is shutting down");
+    }
+
+    private boolean tryReserveSlot() {
+        while (true) {
+            int current = queued.get();
+            if (current >= queueCapacity) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingExpense> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            PendingExpense first = queue.poll();
+            if (first == null) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+                continue;
+            }
+            batch.add(first);
+
+            // Linger until the batch is full or the oldest request has waited long enough
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                PendingExpense next = queue.poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !running) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            queued.addAndGet(-batch.size());
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingExpense> batch) {
+        List<PendingExpense> valid = new ArrayList<>(batch.size());
+        for (PendingExpense pending : batch) {
+            try {
+                expenseService.validateExpense(pending.expense, pending.splits);
+                valid.add(pending);
+            } catch (RuntimeException e) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        // A transaction cannot span shards, so each shard gets its own commit
+        Map<Integer, List<PendingExpense>> byShard = new TreeMap<>();
+        for (PendingExpense pending : valid) {
+            int shard = shardRouter.shardForGroup(pending.expense.getGroup().getId());
+            byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, pending) -> ShardContext.callOn(shard, () -> {
+            commit(pending);
+            return null;
+        }));
+    }
+
+    private void commit(List<PendingExpense> valid) {
+        try {
+            List<Expense> expenses = new ArrayList<>(valid.size());
+            List<List<ExpenseSplit>> splits = new ArrayList<>(valid.size());
+            for (PendingExpense pending : valid) {
+                expenses.add(pending.expense);
+                splits.add(pending.splits);
+            }
+            // Already validated in flush, so the batched path does not check them again
+            List<Expense> saved = transactionTemplate.execute(status ->
+                    expenseService.createValidatedExpenses(expenses, splits));
+            for (int i = 0; i < valid.size(); i++) {
+                valid.get(i).result.complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            // One bad row must not fail its neighbours: retry each on its own
+            logger.warn("Group commit of {} expenses failed, retrying individually", valid.size(), e);
+            for (PendingExpense pending : valid) {
+                resetIds(pending);
+                try {
+                    pending.result.complete(expenseService.createExpense(pending.expense, pending.splits));
+                } catch (RuntimeException individual) {
+                    pending.result.completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    // Identifiers and versions assigned during the rolled back attempt no longer exist
+    private void resetIds(PendingExpense pending) {
+        pending.expense.setId(null);
+        pending.expense.setVersion(null);
+        for (ExpenseSplit split : pending.splits) {
+            split.setId(null);
+            split.setVersion(null);
+        }
+    }
+
+    private static final class PendingExpense {
+        private final Expense expense;
+        private final List<ExpenseSplit> splits;
+        private final CompletableFuture<Expense> result = new CompletableFuture<>();
+
+        private PendingExpense(Expense expense, List<ExpenseSplit> splits) {
+            this.expense = expense;
+            this.splits = splits;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.splitapp.service;
+
+import com.splitapp.dto.ExpenseSearchHit;
+import com.splitapp.model.Expense;
+import com.splitapp.model.User;
+import com.splitapp.repository.ArchivedExpenseRepository;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.UserRepository;
+import com.splitapp.search.ExpenseSearchIndex;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Full-text search over expenses, served entirely from an in-process
+ * {@link ExpenseSearchIndex}. Creates and deletes reach the index after their
+ * transaction commits. The whole index, archived expenses included, is rebuilt
+ * at startup and every {@code rebuild-interval-ms} by scanning the tables in
+ * id-ordered chunks, which also picks up writes made by other instances.
+ */
+@Service
+public class ExpenseSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseSearchService.class);
+
+    private final ExpenseRepository expenseRepository;
+    private final ArchivedExpenseRepository archivedExpenseRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int scanChunkSize;
+
+    private final Object updateLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile ExpenseSearchIndex index = new ExpenseSearchIndex();
+    // Updates seen while a rebuild scans the tables, replayed onto the new index; guarded by updateLock
+    private List<Consumer<ExpenseSearchIndex>> pendingUpdates;
+
+    @Autowired
+    public ExpenseSearchService(
+            ExpenseRepository expenseRepository,
+            ArchivedExpenseRepository archivedExpenseRepository,
+            UserRepository userRepository,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.search.scan-chunk-size:1000}") int scanChunkSize) {
+        this.expenseRepository = expenseRepository;
+        this.archivedExpenseRepository = archivedExpenseRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.scanChunkSize = scanChunkSize;
+    }
+
+    public List<ExpenseSearchHit> search(String query, Long groupId, int limit) {
+        return index.search(query, groupId, limit);
+    }
+
+    /**
+     * Indexes a newly created expense once the surrounding transaction commits.
+     */
+    public void indexAfterCommit(Expense expense) {
+        String paidBy = expense.getPaidBy().getName();
+        if (paidBy == null) {
+            // Request bodies usually carry only the payer's id
+            paidBy = userRepository.findById(expense.getPaidBy().getId()).map(User::getName).orElse(null);
+        }
+        ExpenseSearchHit document = new ExpenseSearchHit(expense.getId(), expense.getGroup().getId(),
+                expense.getDescription(), expense.getAmount(), paidBy, expense.getExpenseDate(), false, 0);
+        afterCommit(index -> index.put(document));
+    }
+
+    public void removeAfterCommit(Long expenseId) {
+        afterCommit(index -> index.remove(expenseId));
+    }
+
+    public void removeAllAfterCommit(Collection<Long> expenseIds) {
+        afterCommit(index -> expenseIds.forEach(index::remove));
+    }
+
+    @Scheduled(initialDelayString = "${splitapp.search.initial-delay-ms:0}",
+            fixedDelayString = "${splitapp.search.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            synchronized (updateLock) {
+                pendingUpdates = new ArrayList<>();
+            }
+            long started = System.nanoTime();
+            ExpenseSearchIndex rebuilt = new ExpenseSearchIndex();
+            shardRouter.forEachShard(() -> {
+                scan(rebuilt, expenseRepository::findSearchRowsAfter, false);
+                scan(rebuilt, archivedExpenseRepository::findSearchRowsAfter, true);
+            });
+
+            synchronized (updateLock) {
+                pendingUpdates.forEach(update -> update.accept(rebuilt));
+                pendingUpdates = null;
+                index = rebuilt;
+            }
+            logger.info("Rebuilt expense search index with {} expenses in {} ms",
+                    rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            synchronized (updateLock) {
+                pendingUpdates = null;
+            }
+            logger.error("Failed to rebuild expense search index", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void scan(ExpenseSearchIndex target, BiFunction<Long, Pageable, List<Object[]>> query, boolean archived) {
+        long afterId = 0L;
+        while (true) {
+            long from = afterId;
+            List<Object[]> rows = readOnlyTransaction.execute(status ->
+                    query.apply(from, PageRequest.of(0, scanChunkSize)));
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+            for (Object[] row : rows) {
+                target.put(new ExpenseSearchHit((Long) row[0], (Long) row[1], (String) row[2],
+                        (BigDecimal) row[3], (String) row[5], (LocalDateTime) row[4], archived, 0));
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    private void afterCommit(Consumer<ExpenseSearchIndex> update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(update);
+            }
+        });
+    }
+
+    private void apply(Consumer<ExpenseSearchIndex> update) {
+        synchronized (updateLock) {
+            update.accept(index);
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            }
+        }
+    }
+}
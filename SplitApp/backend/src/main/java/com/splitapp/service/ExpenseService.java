@@ -1,20 +1,46 @@
 package com.splitapp.service;
 
+import com.splitapp.audit.AuditLog;
+import com.splitapp.audit.AuditRecord;
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.concurrency.LocksGroup;
+import com.splitapp.concurrency.RetryOnOptimisticLock;
+import com.splitapp.model.ChangeLogEntry;
 import com.splitapp.model.Expense;
 import com.splitapp.model.ExpenseSplit;
 import com.splitapp.model.Group;
-import com.splitapp.model.User;
+import com.splitapp.model.OutboxEvent;
+import com.splitapp.projection.Projection;
+import com.splitapp.projection.ProjectionQuery;
+import com.splitapp.repository.ExpenseAttachmentRepository;
 import com.splitapp.repository.ExpenseRepository;
 import com.splitapp.repository.ExpenseSplitRepository;
 import com.splitapp.repository.GroupRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardRouter;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ExpenseService {
@@ -22,54 +48,114 @@ public class ExpenseService {
     private final ExpenseRepository expenseRepository;
     private final ExpenseSplitRepository expenseSplitRepository;
     private final GroupRepository groupRepository;
+    private final GroupVersionService groupVersionService;
+    private final GroupLockRegistry groupLockRegistry;
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final ExpenseSearchService expenseSearchService;
+    private final SpendAnalyticsService spendAnalyticsService;
+    private final FxRateService fxRateService;
+    private final ChangeLogService changeLogService;
+    private final OutboxService outboxService;
+    private final ExpenseAttachmentRepository expenseAttachmentRepository;
+    private final AuditLog auditLog;
+    private final ProjectionQuery projectionQuery;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public ExpenseService(
             ExpenseRepository expenseRepository, 
             ExpenseSplitRepository expenseSplitRepository,
-            GroupRepository groupRepository) {
+            GroupRepository groupRepository,
+            GroupVersionService groupVersionService,
+            GroupLockRegistry groupLockRegistry,
+            LedgerService ledgerService,
+            ShardRouter shardRouter,
+            ExpenseSearchService expenseSearchService,
+            SpendAnalyticsService spendAnalyticsService,
+            FxRateService fxRateService,
+            ChangeLogService changeLogService,
+            OutboxService outboxService,
+            ExpenseAttachmentRepository expenseAttachmentRepository,
+            AuditLog auditLog,
+            ProjectionQuery projectionQuery) {
         this.expenseRepository = expenseRepository;
         this.expenseSplitRepository = expenseSplitRepository;
         this.groupRepository = groupRepository;
+        this.groupVersionService = groupVersionService;
+        this.groupLockRegistry = groupLockRegistry;
+        this.ledgerService = ledgerService;
+        this.shardRouter = shardRouter;
+        this.expenseSearchService = expenseSearchService;
+        this.spendAnalyticsService = spendAnalyticsService;
+        this.fxRateService = fxRateService;
+        this.changeLogService = changeLogService;
+        this.outboxService = outboxService;
+        this.expenseAttachmentRepository = expenseAttachmentRepository;
+        this.auditLog = auditLog;
+        this.projectionQuery = projectionQuery;
     }
 
     public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+        return shardRouter.scatter(expenseRepository::findAll);
     }
 
+    @RouteToShard(row = "#id")
+    @Transactional(readOnly = true)
     public Optional<Expense> getExpenseById(Long id) {
         return expenseRepository.findById(id);
     }
 
-    public List<Expense> getExpensesByGroup(Group group) {
-        return expenseRepository.findByGroup(group);
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<Expense> getExpensesByGroup(Long groupId) {
+        return expenseRepository.findByGroupId(groupId);
+    }
+
+    public List<Map<String, Object>> selectAllExpenses(List<String> fields) {
+        return shardRouter.scatter(() -> projectionQuery.find(Projection.EXPENSE, fields, null));
+    }
+
+    @RouteToShard(row = "#id")
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> selectExpenseById(Long id, List<String> fields) {
+        return projectionQuery.find(Projection.EXPENSE, fields,
+                (root, query, builder) -> builder.equal(root.get("id"), id)).stream().findFirst();
+    }
+
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectExpensesByGroup(Long groupId, List<String> fields) {
+        return projectionQuery.find(Projection.EXPENSE, fields,
+                (root, query, builder) -> builder.equal(root.get("group").get("id"), groupId));
     }
 
-    public List<Expense> getExpensesByPaidBy(User user) {
-        return expenseRepository.findByPaidBy(user);
+    public List<Expense> getExpensesByPaidBy(Long userId) {
+        return shardRouter.scatter(() -> expenseRepository.findByPaidById(userId));
     }
 
+    @RouteToShard(group = "#expense.group?.id")
+    @LocksGroup("#expense.group?.id")
     @Transactional
     public Expense createExpense(Expense expense, List<ExpenseSplit> splits) {
-        // Validate that the expense belongs to a group
-        if (expense.getGroup() == null || !groupRepository.existsById(expense.getGroup().getId())) {
-            throw new RuntimeException("Expense must belong to a valid group");
+        validateExpense(expense, splits);
+        groupLockRegistry.lockForTransaction(expense.getGroup().getId());
+        
+        // The ledger and rollups convert into the group's base currency, so they need the loaded group
+        Group group = groupRepository.findById(expense.getGroup().getId())
+                .orElseThrow(() -> new RuntimeException("Expense must belong to a valid group"));
+        expense.setGroup(group);
+        if (expense.getCurrency() == null) {
+            expense.setCurrency(fxRateService.baseCurrencyOf(group));
         }
         
         // Set expense date if not provided
         if (expense.getExpenseDate() == null) {
             expense.setExpenseDate(LocalDateTime.now());
         }
-        
-        // Validate that the total split amount equals the expense amount
-        BigDecimal totalSplitAmount = BigDecimal.ZERO;
-        for (ExpenseSplit split : splits) {
-            totalSplitAmount = totalSplitAmount.add(split.getAmount());
-        }
-        
-        if (expense.getAmount().compareTo(totalSplitAmount) != 0) {
-            throw new RuntimeException("The sum of split amounts must equal the expense amount");
-        }
+        fxRateService.assignBaseAmounts(expense, splits);
         
         // Save the expense first
         Expense savedExpense = expenseRepository.save(expense);
@@ -79,33 +165,246 @@ public class ExpenseService {
             split.setExpense(savedExpense);
             split.setSettled(false);
             expenseSplitRepository.save(split);
+            changeLogService.record(group.getId(), ChangeLogEntry.EntityType.EXPENSE_SPLIT, split.getId(),
+                    ChangeLogEntry.Operation.UPSERT);
         }
+        changeLogService.record(group.getId(), ChangeLogEntry.EntityType.EXPENSE, savedExpense.getId(),
+                ChangeLogEntry.Operation.UPSERT);
+        outboxService.publish(OutboxEvent.EventType.EXPENSE_CREATED, group.getId(), savedExpense.getId());
+        auditLog.record(AuditRecord.forExpense(AuditRecord.Action.EXPENSE_CREATED, savedExpense, splits));
         
+        ledgerService.recordExpense(savedExpense, splits);
+        spendAnalyticsService.recordExpense(savedExpense, splits);
+        expenseSearchService.indexAfterCommit(savedExpense);
+        groupVersionService.bumpVersion(expense.getGroup().getId());
         return savedExpense;
     }
 
+    /**
+     * Writes expenses that were already checked with {@link #validateExpense},
+     * all of groups on the current shard, in the caller's transaction. Each group
+     * is locked and loaded once, the expense and split rows go out as JDBC
+     * batches, and the ledger is appended to once; the rest matches
+     * {@link #createExpense}. Fails as a whole, so callers that batch requests
+     * retry them one by one.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Expense> createValidatedExpenses(List<Expense> expenses, List<List<ExpenseSplit>> splits) {
+        if (expenses.isEmpty()) {
+            return expenses;
+        }
+        TreeSet<Long> groupIds = new TreeSet<>(groupLockRegistry.lockOrder());
+        expenses.forEach(expense -> groupIds.add(expense.getGroup().getId()));
+        groupIds.forEach(groupLockRegistry::lockForTransaction);
+        Map<Long, Group> groups = groupRepository.findAllById(groupIds).stream()
+                .collect(Collectors.toMap(Group::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ExpenseSplit> allSplits = new ArrayList<>();
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            Group group = groups.get(expense.getGroup().getId());
+            if (group == null) {
+                throw new RuntimeException("Expense must belong to a valid group");
+            }
+            expense.setGroup(group);
+            if (expense.getCurrency() == null) {
+                expense.setCurrency(fxRateService.baseCurrencyOf(group));
+            }
+            if (expense.getExpenseDate() == null) {
+                expense.setExpenseDate(now);
+            }
+            fxRateService.assignBaseAmounts(expense, splits.get(i));
+            expense.setCreatedAt(now);
+            expense.setUpdatedAt(now);
+            expense.setVersion(0L);
+            for (ExpenseSplit split : splits.get(i)) {
+                split.setExpense(expense);
+                split.setSettled(false);
+                split.setCreatedAt(now);
+                split.setVersion(0L);
+                allSplits.add(split);
+            }
+        }
+        insertAll(expenses, allSplits);
+
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            Long groupId = expense.getGroup().getId();
+            for (ExpenseSplit split : splits.get(i)) {
+                changeLogService.record(groupId, ChangeLogEntry.EntityType.EXPENSE_SPLIT, split.getId(),
+                        ChangeLogEntry.Operation.UPSERT);
+            }
+            changeLogService.record(groupId, ChangeLogEntry.EntityType.EXPENSE, expense.getId(),
+                    ChangeLogEntry.Operation.UPSERT);
+            outboxService.publish(OutboxEvent.EventType.EXPENSE_CREATED, groupId, expense.getId());
+            auditLog.record(AuditRecord.forExpense(AuditRecord.Action.EXPENSE_CREATED, expense, splits.get(i)));
+            spendAnalyticsService.recordExpense(expense, splits.get(i));
+            expenseSearchService.indexAfterCommit(expense);
+        }
+        ledgerService.recordExpenses(expenses, splits);
+        groupIds.forEach(groupVersionService::bumpVersion);
+        return expenses;
+    }
+
+    // Plain batched inserts: IDENTITY keys keep Hibernate from batching, so the keys are read back from the driver
+    private void insertAll(List<Expense> expenses, List<ExpenseSplit> splits) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO expenses (description, amount, currency, base_amount, group_id, paid_by, "
+                            + "expense_date, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Expense expense : expenses) {
+                    insert.setString(1, expense.getDescription());
+                    insert.setBigDecimal(2, expense.getAmount());
+                    insert.setString(3, expense.getCurrency());
+                    insert.setBigDecimal(4, expense.getBaseAmount());
+                    insert.setLong(5, expense.getGroup().getId());
+                    insert.setLong(6, expense.getPaidBy().getId());
+                    insert.setTimestamp(7, Timestamp.valueOf(expense.getExpenseDate()));
+                    insert.setTimestamp(8, Timestamp.valueOf(expense.getCreatedAt()));
+                    insert.setTimestamp(9, Timestamp.valueOf(expense.getUpdatedAt()));
+                    insert.setLong(10, expense.getVersion());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    for (Expense expense : expenses) {
+                        expense.setId(nextKey(keys));
+                    }
+                }
+            }
+            if (splits.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO expense_splits (expense_id, user_id, amount, base_amount, settled, created_at, version) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (ExpenseSplit split : splits) {
+                    insert.setLong(1, split.getExpense().getId());
+                    insert.setLong(2, split.getUser().getId());
+                    insert.setBigDecimal(3, split.getAmount());
+                    insert.setBigDecimal(4, split.getBaseAmount());
+                    insert.setBoolean(5, split.isSettled());
+                    insert.setTimestamp(6, Timestamp.valueOf(split.getCreatedAt()));
+                    insert.setLong(7, split.getVersion());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    for (ExpenseSplit split : splits) {
+                        split.setId(nextKey(keys));
+                    }
+                }
+            }
+        });
+    }
+
+    private static Long nextKey(ResultSet keys) throws SQLException {
+        if (!keys.next()) {
+            throw new IllegalStateException("The driver returned fewer generated keys than rows inserted");
+        }
+        return keys.getLong(1);
+    }
+
+    /**
+     * Checks an expense before it is written. Kept separate from createExpense so
+     * batched writers can reject invalid requests individually before they join
+     * a shared transaction.
+     */
+    public void validateExpense(Expense expense, List<ExpenseSplit> splits) {
+        // Validate that the expense belongs to a group
+        Optional<Group> group = expense.getGroup() == null || expense.getGroup().getId() == null
+                ? Optional.empty()
+                : groupRepository.findById(expense.getGroup().getId());
+        if (!group.isPresent()) {
+            throw new RuntimeException("Expense must belong to a valid group");
+        }
+        
+        if (expense.getPaidBy() == null || expense.getAmount() == null) {
+            throw new RuntimeException("Expense must have a payer and an amount");
+        }
+        
+        // A foreign currency is only accepted if it can be converted into the group's base currency
+        if (expense.getCurrency() != null) {
+            expense.setCurrency(FxRateService.normalizeCurrency(expense.getCurrency()));
+            String baseCurrency = fxRateService.baseCurrencyOf(group.get());
+            LocalDate day = expense.getExpenseDate() != null ? expense.getExpenseDate().toLocalDate() : null;
+            if (!fxRateService.snapshot().canConvert(expense.getCurrency(), baseCurrency, day)) {
+                throw new RuntimeException("No exchange rate from " + expense.getCurrency() + " to " + baseCurrency);
+            }
+        }
+        
+        // Validate that the total split amount equals the expense amount
+        BigDecimal totalSplitAmount = BigDecimal.ZERO;
+        for (ExpenseSplit split : splits) {
+            if (split.getUser() == null || split.getAmount() == null) {
+                throw new RuntimeException("Every split must have a user and an amount");
+            }
+            totalSplitAmount = totalSplitAmount.add(split.getAmount());
+        }
+        
+        if (expense.getAmount().compareTo(totalSplitAmount) != 0) {
+            throw new RuntimeException("The sum of split amounts must equal the expense amount");
+        }
+    }
+
+    @RouteToShard(row = "#id")
+    @LocksGroup("@expenseRepository.findGroupIdById(#id)")
     @Transactional
     public void deleteExpense(Long id) {
-        expenseRepository.deleteById(id);
+        Expense expense = expenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Expense not found with id: " + id));
+        groupLockRegistry.lockForTransaction(expense.getGroup().getId());
+        List<ExpenseSplit> splits = expenseSplitRepository.findByExpense(expense);
+        ledgerService.recordExpenseDeleted(expense, splits);
+        spendAnalyticsService.recordExpenseDeleted(expense, splits);
+        groupVersionService.bumpVersion(expense.getGroup().getId());
+        expenseSearchService.removeAfterCommit(id);
+        changeLogService.record(expense.getGroup().getId(), ChangeLogEntry.EntityType.EXPENSE, id,
+                ChangeLogEntry.Operation.DELETE);
+        outboxService.publish(OutboxEvent.EventType.EXPENSE_DELETED, expense.getGroup().getId(), id);
+        auditLog.record(AuditRecord.forExpense(AuditRecord.Action.EXPENSE_DELETED, expense, splits));
+        // The files stay until the attachment sweep finds them unreferenced
+        expenseAttachmentRepository.deleteByExpenseId(id);
+        expenseRepository.delete(expense);
     }
     
+    @RouteToShard(row = "#expense.id")
+    @Transactional(readOnly = true)
     public List<ExpenseSplit> getExpenseSplitsByExpense(Expense expense) {
         return expenseSplitRepository.findByExpense(expense);
     }
     
-    public List<ExpenseSplit> getExpenseSplitsByUser(User user) {
-        return expenseSplitRepository.findByUser(user);
+    public List<ExpenseSplit> getExpenseSplitsByUser(Long userId) {
+        return shardRouter.scatter(() -> expenseSplitRepository.findByUserId(userId));
     }
     
-    public List<ExpenseSplit> getUnsettledExpenseSplitsByUser(User user) {
-        return expenseSplitRepository.findByUserAndSettledFalse(user);
+    public List<ExpenseSplit> getUnsettledExpenseSplitsByUser(Long userId) {
+        return shardRouter.scatter(() -> expenseSplitRepository.findByUserIdAndSettledFalse(userId));
     }
     
+    @RouteToShard(row = "#expenseSplitId")
+    @LocksGroup("@expenseSplitRepository.findGroupIdById(#expenseSplitId)")
     @Transactional
+    @RetryOnOptimisticLock
     public ExpenseSplit markExpenseSplitAsSettled(Long expenseSplitId) {
         return expenseSplitRepository.findById(expenseSplitId)
                 .map(expenseSplit -> {
+                    Long groupId = expenseSplit.getExpense().getGroup().getId();
+                    groupLockRegistry.lockForTransaction(groupId);
+                    // Settling twice changes nothing, so the group version and change log stay put
+                    if (expenseSplit.isSettled()) {
+                        return expenseSplit;
+                    }
                     expenseSplit.setSettled(true);
+                    ledgerService.recordSplitSettled(expenseSplit);
+                    outboxService.publish(OutboxEvent.EventType.EXPENSE_SPLIT_SETTLED, groupId, expenseSplitId);
+                    auditLog.record(AuditRecord.forSplitSettled(expenseSplit));
+                    groupVersionService.bumpVersion(groupId);
+                    changeLogService.record(groupId, ChangeLogEntry.EntityType.EXPENSE_SPLIT, expenseSplitId,
+                            ChangeLogEntry.Operation.UPSERT);
                     return expenseSplitRepository.save(expenseSplit);
                 })
                 .orElseThrow(() -> new RuntimeException("ExpenseSplit not found with id: " + expenseSplitId));
@@ -0,0 +1,157 @@
+package com.splitapp.service;
+
+import com.splitapp.fx.FxRateLoader;
+import com.splitapp.fx.FxRateSnapshot;
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Group;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link FxRateSnapshot} and reloads it every
+ * {@code refresh-interval-ms}. A reload that finds the same rates keeps the
+ * current snapshot, so cached responses stay valid; a failed reload keeps
+ * serving the last good snapshot.
+ * <p>
+ * Amounts without a currency are in their group's base currency, and groups
+ * without a base currency use {@code splitapp.fx.default-currency}, which is
+ * also the pivot the rates are quoted against.
+ */
+@Service
+public class FxRateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxRateService.class);
+
+    private final FxRateLoader fxRateLoader;
+    private final String defaultCurrency;
+    private final AtomicReference<FxRateSnapshot> snapshot = new AtomicReference<>();
+
+    @Autowired
+    public FxRateService(
+            FxRateLoader fxRateLoader,
+            @Value("${splitapp.fx.default-currency:USD}") String defaultCurrency) {
+        this.fxRateLoader = fxRateLoader;
+        this.defaultCurrency = normalizeCurrency(defaultCurrency);
+    }
+
+    /**
+     * Returns the current snapshot. Callers that convert several amounts should
+     * take it once, so every amount uses the same rates.
+     */
+    public FxRateSnapshot snapshot() {
+        FxRateSnapshot current = snapshot.get();
+        if (current == null) {
+            refresh();
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${splitapp.fx.initial-delay-ms:0}",
+            fixedDelayString = "${splitapp.fx.refresh-interval-ms:3600000}")
+    public synchronized void refresh() {
+        FxRateSnapshot current = snapshot.get();
+        FxRateSnapshot loaded;
+        try {
+            loaded = new FxRateSnapshot(nextVersion(current), defaultCurrency, fxRateLoader.load());
+        } catch (RuntimeException e) {
+            logger.error("Failed to load FX rates", e);
+            if (current == null) {
+                snapshot.set(new FxRateSnapshot(nextVersion(null), defaultCurrency, Collections.emptyMap()));
+            }
+            return;
+        }
+        if (current != null && current.hasSameRates(loaded)) {
+            return;
+        }
+        snapshot.set(loaded);
+        logger.info("Loaded FX rate snapshot {}", Long.toHexString(loaded.getVersion()));
+    }
+
+    // Follows the clock, so versions keep growing across restarts, and never repeats within this instance
+    private static long nextVersion(FxRateSnapshot current) {
+        long next = System.currentTimeMillis();
+        return current != null && current.getVersion() >= next ? current.getVersion() + 1 : next;
+    }
+
+    public String baseCurrencyOf(Group group) {
+        return group.getBaseCurrency() != null ? group.getBaseCurrency() : defaultCurrency;
+    }
+
+    /**
+     * Currency of the expense; expenses created before currencies existed are in
+     * their group's base currency. The expense's group must be loaded.
+     */
+    public String currencyOf(Expense expense) {
+        return expense.getCurrency() != null ? expense.getCurrency() : baseCurrencyOf(expense.getGroup());
+    }
+
+    /**
+     * Converts an amount of the expense, such as one of its splits, into the
+     * group's base currency at the rates of the expense date.
+     */
+    public BigDecimal toBaseCurrency(BigDecimal amount, Expense expense) {
+        LocalDate day = expense.getExpenseDate() != null ? expense.getExpenseDate().toLocalDate() : null;
+        return snapshot().convert(amount, currencyOf(expense), baseCurrencyOf(expense.getGroup()), day);
+    }
+
+    /**
+     * Fixes the base currency amounts of a new expense and its splits, all at
+     * the same rates. Every later use of the expense, reversals included, reads
+     * these instead of converting again, so rate updates cannot make a reversal
+     * differ from what was recorded.
+     */
+    public void assignBaseAmounts(Expense expense, List<ExpenseSplit> splits) {
+        FxRateSnapshot rates = snapshot();
+        String currency = currencyOf(expense);
+        String baseCurrency = baseCurrencyOf(expense.getGroup());
+        LocalDate day = expense.getExpenseDate() != null ? expense.getExpenseDate().toLocalDate() : null;
+        expense.setBaseAmount(rates.convert(expense.getAmount(), currency, baseCurrency, day));
+        for (ExpenseSplit split : splits) {
+            split.setBaseAmount(rates.convert(split.getAmount(), currency, baseCurrency, day));
+        }
+    }
+
+    /**
+     * The expense's amount in the group's base currency as fixed at creation.
+     * Expenses created before base amounts were stored are converted at the
+     * current rates.
+     */
+    public BigDecimal baseAmountOf(Expense expense) {
+        return expense.getBaseAmount() != null ? expense.getBaseAmount() : toBaseCurrency(expense.getAmount(), expense);
+    }
+
+    /**
+     * The split's amount in the group's base currency as fixed at creation,
+     * see {@link #baseAmountOf(Expense)}.
+     */
+    public BigDecimal baseAmountOf(ExpenseSplit split, Expense expense) {
+        return split.getBaseAmount() != null ? split.getBaseAmount() : toBaseCurrency(split.getAmount(), expense);
+    }
+
+    /**
+     * Upper-cases and checks an ISO 4217 currency code.
+     */
+    public static String normalizeCurrency(String code) {
+        String normalized = code.trim().toUpperCase(Locale.ROOT);
+        try {
+            Currency.getInstance(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown currency: " + code);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,11 @@
+package com.splitapp.service;
+
+public class GroupCommitTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GroupCommitTimeoutException(long timeoutMillis, boolean inFlight) {
+        super("Expense was not committed within " + timeoutMillis + " ms"
+                + (inFlight ? "; it may still be saved, check before retrying" : "; it was not saved"));
+    }
+}
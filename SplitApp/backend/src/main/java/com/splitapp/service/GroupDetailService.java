@@ -0,0 +1,97 @@
+package com.splitapp.service;
+
+import com.splitapp.dto.GroupDetail;
+import com.splitapp.dto.MemberBalance;
+import com.splitapp.model.Expense;
+import com.splitapp.model.Group;
+import com.splitapp.model.Settlement;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.GroupRepository;
+import com.splitapp.repository.SettlementRepository;
+import com.splitapp.sharding.RouteToShard;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Assembles everything the group screen needs in one call. The sub-queries are
+ * independent, so each runs on the query executor in its own read-only
+ * transaction; only the balances wait for the group header, which carries
+ * the member list. The entities outlive those transactions, so everything the
+ * response includes is loaded before each one ends.
+ */
+@Service
+public class GroupDetailService {
+
+    private final GroupRepository groupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final SettlementRepository settlementRepository;
+    private final BalanceService balanceService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor queryExecutor;
+
+    @Autowired
+    public GroupDetailService(
+            GroupRepository groupRepository,
+            ExpenseRepository expenseRepository,
+            SettlementRepository settlementRepository,
+            BalanceService balanceService,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("queryExecutor") Executor queryExecutor) {
+        this.groupRepository = groupRepository;
+        this.expenseRepository = expenseRepository;
+        this.settlementRepository = settlementRepository;
+        this.balanceService = balanceService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.queryExecutor = queryExecutor;
+    }
+
+    @RouteToShard(group = "#groupId")
+    public Optional<GroupDetail> getGroupDetail(Long groupId, int expenseLimit, int settlementLimit) {
+        CompletableFuture<Optional<Group>> groupFuture = supplyReadOnly(() ->
+                groupRepository.findById(groupId).map(group -> {
+                    Hibernate.initialize(group.getMembers());
+                    return group;
+                }));
+        CompletableFuture<Page<Expense>> expensesFuture = supplyReadOnly(() -> {
+            Page<Expense> expenses = expenseRepository.findByGroupId(groupId, PageRequest.of(0, expenseLimit,
+                    Sort.by(Sort.Direction.DESC, "expenseDate", "id")));
+            if (expenses.hasContent()) {
+                expenseRepository.findWithSplitsByIdIn(expenses.map(Expense::getId).getContent());
+            }
+            return expenses;
+        });
+        CompletableFuture<List<Settlement>> settlementsFuture = supplyReadOnly(() ->
+                settlementRepository.findByGroupId(groupId, PageRequest.of(0, settlementLimit,
+                        Sort.by(Sort.Direction.DESC, "createdAt", "id"))));
+        CompletableFuture<List<MemberBalance>> balancesFuture = groupFuture.thenApplyAsync(group ->
+                group.map(g -> readOnlyTransaction.execute(status -> balanceService.getGroupBalances(g)))
+                        .orElse(Collections.emptyList()), queryExecutor);
+        
+        CompletableFuture.allOf(groupFuture, expensesFuture, settlementsFuture, balancesFuture).join();
+        
+        return groupFuture.join().map(group -> {
+            Page<Expense> expenses = expensesFuture.join();
+            return new GroupDetail(group, expenses.getContent(), expenses.getTotalElements(),
+                    settlementsFuture.join(), balancesFuture.join());
+        });
+    }
+
+    private <T> CompletableFuture<T> supplyReadOnly(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), queryExecutor);
+    }
+}
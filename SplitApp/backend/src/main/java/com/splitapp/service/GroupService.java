@@ -1,68 +1,248 @@
 package com.splitapp.service;
 
+import com.splitapp.concurrency.RetryOnOptimisticLock;
+import com.splitapp.model.ChangeLogEntry;
 import com.splitapp.model.Group;
 import com.splitapp.model.GroupMember;
+import com.splitapp.model.OutboxEvent;
 import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.projection.ProjectionQuery;
+import com.splitapp.repository.ExpenseRepository;
 import com.splitapp.repository.GroupRepository;
+import com.splitapp.sharding.ReferenceDataMirror;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class GroupService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GroupService.class);
+    private static final Specification<Group> NOT_DELETED =
+            (root, query, builder) -> builder.isNull(root.get("deletedAt"));
+
     private final GroupRepository groupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final GroupVersionService groupVersionService;
+    private final ReferenceDataMirror referenceDataMirror;
+    private final ChangeLogService changeLogService;
+    private final OutboxService outboxService;
+    private final ProjectionQuery projectionQuery;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
 
     @Autowired
-    public GroupService(GroupRepository groupRepository) {
+    public GroupService(
+            GroupRepository groupRepository,
+            ExpenseRepository expenseRepository,
+            GroupVersionService groupVersionService,
+            ReferenceDataMirror referenceDataMirror,
+            ChangeLogService changeLogService,
+            OutboxService outboxService,
+            ProjectionQuery projectionQuery,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager) {
         this.groupRepository = groupRepository;
+        this.expenseRepository = expenseRepository;
+        this.groupVersionService = groupVersionService;
+        this.referenceDataMirror = referenceDataMirror;
+        this.changeLogService = changeLogService;
+        this.outboxService = outboxService;
+        this.projectionQuery = projectionQuery;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
+    @Transactional(readOnly = true)
     public List<Group> getAllGroups() {
         return groupRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Group> getGroupById(Long id) {
         return groupRepository.findById(id);
     }
 
-    public List<Group> getGroupsByCreator(User creator) {
-        return groupRepository.findByCreator(creator);
+    @Transactional(readOnly = true)
+    public boolean existsById(Long id) {
+        return groupRepository.existsById(id);
     }
 
-    public List<Group> getGroupsByMember(User member) {
-        return groupRepository.findByMembersContaining(member);
+    @Transactional(readOnly = true)
+    public List<Group> getGroupsByIds(Collection<Long> ids) {
+        return groupRepository.findDistinctByIdInAndDeletedAtIsNullOrderById(ids);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectAllGroups(List<String> fields) {
+        return projectionQuery.find(Projection.GROUP, fields, NOT_DELETED);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> selectGroupById(Long id, List<String> fields) {
+        return projectionQuery.find(Projection.GROUP, fields,
+                NOT_DELETED.and((root, query, builder) -> builder.equal(root.get("id"), id))).stream().findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectGroupsByIds(Collection<Long> ids, List<String> fields) {
+        return projectionQuery.find(Projection.GROUP, fields,
+                NOT_DELETED.and((root, query, builder) -> root.get("id").in(ids)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Group> getGroupsByCreator(Long userId) {
+        return groupRepository.findByCreatorIdAndDeletedAtIsNull(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Group> getGroupsByMember(Long userId) {
+        return groupRepository.findByMembersIdAndDeletedAtIsNull(userId);
+    }
+
+    /**
+     * The group is written on the current shard, but its version and change
+     * log live on the shard it is assigned to by id. When the two differ, they
+     * are recorded there in a second transaction, once the group has been
+     * mirrored over.
+     */
     public Group createGroup(Group group) {
-        // Add creator as a member
-        if (!group.getMembers().contains(group.getCreator())) {
-            group.getMembers().add(group.getCreator());
+        Integer current = ShardContext.current();
+        int source = current != null ? current : 0;
+        Group savedGroup = transactionTemplate.execute(status -> {
+            // Add creator as a member
+            if (!group.getMembers().contains(group.getCreator())) {
+                group.getMembers().add(group.getCreator());
+            }
+            if (group.getBaseCurrency() != null) {
+                group.setBaseCurrency(FxRateService.normalizeCurrency(group.getBaseCurrency()));
+            }
+            Group saved = groupRepository.save(group);
+            if (shardRouter.shardForGroup(saved.getId()) == source) {
+                recordCreation(saved);
+            }
+            referenceDataMirror.mirrorGroupAfterCommit(saved.getId());
+            return saved;
+        });
+
+        int shard = shardRouter.shardForGroup(savedGroup.getId());
+        if (shard != source) {
+            try {
+                ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> {
+                    recordCreation(savedGroup);
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                // The group itself is committed; its members show up in the next full download
+                logger.error("Failed to record the creation of group {} on shard {}", savedGroup.getId(), shard, e);
+            }
+        }
+        return savedGroup;
+    }
+
+    /**
+     * Bumps the versions of the given groups once the surrounding transaction
+     * has committed, each on its own shard. For changes stored outside the
+     * groups that their responses show anyway, such as a member's name; the
+     * updated rows are mirrored to the shards before this runs.
+     */
+    public void bumpVersionsAfterCommit(Collection<Long> groupIds) {
+        if (groupIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bumpVersions(groupIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bumpVersions(groupIds);
+            }
+        });
+    }
+
+    private void bumpVersions(Collection<Long> groupIds) {
+        for (Long groupId : groupIds) {
+            int shard = shardRouter.shardForGroup(groupId);
+            try {
+                ShardContext.callOn(shard, () -> newTransaction.execute(status -> {
+                    groupVersionService.bumpVersion(groupId);
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                // The change itself is committed; the group's next write moves the version on
+                logger.error("Failed to bump the version of group {} on shard {}", groupId, shard, e);
+            }
+        }
+    }
+
+    private void recordCreation(Group group) {
+        groupVersionService.bumpVersion(group.getId());
+        for (User member : group.getMembers()) {
+            changeLogService.record(group.getId(), ChangeLogEntry.EntityType.MEMBERSHIP, member.getId(),
+                    ChangeLogEntry.Operation.UPSERT);
         }
-        return groupRepository.save(group);
     }
 
+    @RouteToShard(group = "#id")
     @Transactional
+    @RetryOnOptimisticLock
     public Group updateGroup(Long id, Group groupDetails) {
         return groupRepository.findById(id)
                 .map(existingGroup -> {
                     existingGroup.setName(groupDetails.getName());
                     existingGroup.setDescription(groupDetails.getDescription());
+                    if (groupDetails.getBaseCurrency() != null) {
+                        String baseCurrency = FxRateService.normalizeCurrency(groupDetails.getBaseCurrency());
+                        // The ledger and rollups hold amounts already converted into the old base currency
+                        if (!baseCurrency.equals(existingGroup.getBaseCurrency())
+                                && expenseRepository.existsByGroupId(id)) {
+                            throw new RuntimeException("Cannot change the base currency of a group with expenses");
+                        }
+                        existingGroup.setBaseCurrency(baseCurrency);
+                    }
+                    groupVersionService.bumpVersion(id);
+                    referenceDataMirror.mirrorGroupAfterCommit(id);
                     return groupRepository.save(existingGroup);
                 })
                 .orElseThrow(() -> new RuntimeException("Group not found with id: " + id));
     }
 
+    @RouteToShard(group = "#groupId")
     @Transactional
+    @RetryOnOptimisticLock
     public Group addMemberToGroup(Long groupId, User user) {
         return groupRepository.findById(groupId)
                 .map(group -> {
                     if (!group.getMembers().contains(user)) {
                         group.getMembers().add(user);
+                        groupVersionService.bumpVersion(groupId);
+                        changeLogService.record(groupId, ChangeLogEntry.EntityType.MEMBERSHIP, user.getId(),
+                                ChangeLogEntry.Operation.UPSERT);
+                        outboxService.publish(OutboxEvent.EventType.MEMBER_ADDED, groupId, user.getId());
+                        referenceDataMirror.mirrorGroupAfterCommit(groupId);
                         return groupRepository.save(group);
                     }
                     return group;
@@ -70,7 +250,9 @@ public class GroupService {
                 .orElseThrow(() -> new RuntimeException("Group not found with id: " + groupId));
     }
 
+    @RouteToShard(group = "#groupId")
     @Transactional
+    @RetryOnOptimisticLock
     public Group removeMemberFromGroup(Long groupId, User user) {
         return groupRepository.findById(groupId)
                 .map(group -> {
@@ -78,14 +260,51 @@ public class GroupService {
                     if (group.getCreator().equals(user)) {
                         throw new RuntimeException("Cannot remove the creator from the group");
                     }
-                    group.getMembers().remove(user);
+                    // Not a member: nothing changed, so nothing to version, log or announce
+                    if (!group.getMembers().remove(user)) {
+                        return group;
+                    }
+                    groupVersionService.bumpVersion(groupId);
+                    changeLogService.record(groupId, ChangeLogEntry.EntityType.MEMBERSHIP, user.getId(),
+                            ChangeLogEntry.Operation.DELETE);
+                    outboxService.publish(OutboxEvent.EventType.MEMBER_REMOVED, groupId, user.getId());
+                    referenceDataMirror.mirrorGroupAfterCommit(groupId);
                     return groupRepository.save(group);
                 })
                 .orElseThrow(() -> new RuntimeException("Group not found with id: " + groupId));
     }
 
+    /**
+     * Hides the group from every lookup at once; DeletionService purges its
+     * expenses, settlements and memberships in the background.
+     */
+    @RouteToShard(group = "#id")
     @Transactional
     public void deleteGroup(Long id) {
-        groupRepository.deleteById(id);
+        Group group = groupRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Group not found with id: " + id));
+        group.setDeletedAt(LocalDateTime.now());
+        groupVersionService.bumpVersion(id);
+        changeLogService.record(id, ChangeLogEntry.EntityType.GROUP, id, ChangeLogEntry.Operation.DELETE);
+        referenceDataMirror.mirrorGroupAfterCommit(id);
+        groupRepository.save(group);
+    }
+
+    // Takes a deleted user out of a group, even one they created; false if they were not in it
+    @RouteToShard(group = "#groupId")
+    @Transactional
+    @RetryOnOptimisticLock
+    public boolean removeDeletedMember(Long groupId, Long userId) {
+        Optional<Group> group = groupRepository.findById(groupId);
+        if (!group.isPresent() || !group.get().getMembers().removeIf(member -> member.getId().equals(userId))) {
+            return false;
+        }
+        groupVersionService.bumpVersion(groupId);
+        changeLogService.record(groupId, ChangeLogEntry.EntityType.MEMBERSHIP, userId,
+                ChangeLogEntry.Operation.DELETE);
+        outboxService.publish(OutboxEvent.EventType.MEMBER_REMOVED, groupId, userId);
+        referenceDataMirror.mirrorGroupAfterCommit(groupId);
+        groupRepository.save(group.get());
+        return true;
     }
 }
\ No newline at end of file
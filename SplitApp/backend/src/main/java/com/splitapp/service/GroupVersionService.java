@@ -0,0 +1,67 @@
+package com.splitapp.service;
+
+import com.splitapp.repository.GroupVersionRepository;
+import com.splitapp.routing.ReplicaRoutingContext;
+import com.splitapp.sharding.RouteToShard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+/**
+ * Tracks a monotonically increasing version per group, used to serve strong
+ * ETags for group-scoped reads. The version is bumped inside the mutating
+ * transaction, so a reader that sees the new version also sees the new data.
+ */
+@Service
+public class GroupVersionService {
+
+    private final GroupVersionRepository groupVersionRepository;
+    private final FxRateService fxRateService;
+
+    @Autowired
+    public GroupVersionService(GroupVersionRepository groupVersionRepository, FxRateService fxRateService) {
+        this.groupVersionRepository = groupVersionRepository;
+        this.fxRateService = fxRateService;
+    }
+
+    @RouteToShard(group = "#groupId")
+    public long getVersion(Long groupId) {
+        return groupVersionRepository.findVersionByGroupId(groupId).orElse(0L);
+    }
+
+    /**
+     * Returns the strong ETag for the current state of the group. Callers must
+     * compute it before loading the data they return, never after. Balances
+     * depend on exchange rates too, so the rate snapshot version is included.
+     * <p>
+     * The version is read from the primary, and the rest of the request is
+     * pinned there as well: a replica lagging behind could otherwise serve
+     * older data under the newer ETag, which clients would then cache.
+     */
+    @RouteToShard(group = "#groupId")
+    public String getETag(Long groupId) {
+        ReplicaRoutingContext.pinToPrimary();
+        return "\"g" + groupId + "-v" + getVersion(groupId) + "-fx"
+                + Long.toHexString(fxRateService.snapshot().getVersion()) + "\"";
+    }
+
+    /**
+     * The ETag of a response restricted to the given fields, which differs
+     * from the full response's and from that of any other selection.
+     */
+    @RouteToShard(group = "#groupId")
+    public String getETag(Long groupId, List<String> fields) {
+        String eTag = getETag(groupId);
+        return eTag.substring(0, eTag.length() - 1) + "-f"
+                + Integer.toHexString(String.join(",", fields).hashCode()) + "\"";
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void bumpVersion(Long groupId) {
+        if (groupId != null) {
+            groupVersionRepository.incrementVersion(groupId);
+        }
+    }
+}
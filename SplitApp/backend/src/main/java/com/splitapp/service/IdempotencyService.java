@@ -0,0 +1,257 @@
+package com.splitapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitapp.model.IdempotencyRecord;
+import com.splitapp.repository.IdempotencyRecordRepository;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes POST endpoints safe to retry with an {@code Idempotency-Key} header.
+ * <p>
+ * Completed responses are kept in a bounded in-memory cache backed by the
+ * {@code idempotency_records} table. The record is inserted at the start of the
+ * same transaction as the mutation, so a duplicate on another instance blocks on
+ * the primary key and then replays the committed response instead of writing
+ * again. Duplicates on this instance never reach the database: they wait on the
+ * in-flight execution and share its result.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Map<String, StoredResponse> recentResponses;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public IdempotencyService(
+            IdempotencyRecordRepository idempotencyRecordRepository,
+            ObjectMapper objectMapper,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${splitapp.idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.recentResponses = Collections.synchronizedMap(new LinkedHashMap<String, StoredResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Runs the action at most once per scope and key. Without a key the action
+     * simply runs. Only successful responses are stored durably; a failed
+     * request may be retried with the same key.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isEmpty()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String recordKey = scope + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = findCompleted(recordKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(recordKey, execution);
+        if (existing != null) {
+            return replay(existing.join(), requestHash);
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setKey(recordKey);
+            record.setRequestHash(requestHash);
+            record.setExpiresAt(now.plus(ttl));
+
+            ResponseEntity<?> response = transactionTemplate.execute(status -> {
+                // An expired record still holds the primary key until the cleanup gets to it
+                IdempotencyRecord expired = entityManager.find(IdempotencyRecord.class, recordKey);
+                if (expired != null && !expired.getExpiresAt().isAfter(now)) {
+                    entityManager.detach(expired);
+                    idempotencyRecordRepository.deleteExpiredByKey(recordKey, now);
+                }
+                // Blocks on the primary key while another instance holds the same key
+                entityManager.persist(record);
+                entityManager.flush();
+
+                ResponseEntity<?> result = action.get();
+                if (!result.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return result;
+                }
+                record.setStatusCode(result.getStatusCodeValue());
+                record.setResponseBody(serialize(result.getBody()));
+                return result;
+            });
+
+            if (record.getStatusCode() != null) {
+                StoredResponse completed = new StoredResponse(record);
+                recentResponses.put(recordKey, completed);
+                execution.complete(completed);
+            } else {
+                execution.complete(new StoredResponse(
+                        response.getStatusCodeValue(), serialize(response.getBody()), requestHash, LocalDateTime.now()));
+            }
+            return response;
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // Another instance committed the same key first
+            StoredResponse committed = findCompleted(recordKey);
+            if (committed == null) {
+                execution.completeExceptionally(e);
+                throw e;
+            }
+            execution.complete(committed);
+            return replay(committed, requestHash);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, execution);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${splitapp.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredRecords() {
+        LocalDateTime now = LocalDateTime.now();
+        shardRouter.forEachShard(() -> {
+            int deleted = idempotencyRecordRepository.deleteExpired(now);
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired idempotency records", deleted);
+            }
+        });
+    }
+
+    private StoredResponse findCompleted(String recordKey) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse cached = recentResponses.get(recordKey);
+        if (cached != null && cached.expiresAt.isAfter(now)) {
+            return cached;
+        }
+        return idempotencyRecordRepository.findById(recordKey)
+                .filter(record -> record.getStatusCode() != null && record.getExpiresAt().isAfter(now))
+                .map(record -> {
+                    StoredResponse stored = new StoredResponse(record);
+                    recentResponses.put(recordKey, stored);
+                    return stored;
+                })
+                .orElse(null);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(HEADER + " was already used for a different request");
+        }
+        // Parsed back into a tree and left to content negotiation, so a replay comes in the format the retry asks for
+        return ResponseEntity.status(stored.statusCode)
+                .header(REPLAYED_HEADER, "true")
+                .body(deserialize(stored.body));
+    }
+
+    private JsonNode deserialize(String body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            JsonNode tree = objectMapper.readTree(body);
+            return tree.isNull() ? null : tree;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unable to read stored idempotent response", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unable to serialize idempotent response", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(serialize(request).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final int statusCode;
+        private final String body;
+        private final String requestHash;
+        private final LocalDateTime expiresAt;
+
+        private StoredResponse(int statusCode, String body, String requestHash, LocalDateTime expiresAt) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+
+        private StoredResponse(IdempotencyRecord record) {
+            this(record.getStatusCode(), record.getResponseBody(), record.getRequestHash(), record.getExpiresAt());
+        }
+    }
+}
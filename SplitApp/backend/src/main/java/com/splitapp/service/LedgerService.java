@@ -0,0 +1,224 @@
+package com.splitapp.service;
+
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.LedgerEntry;
+import com.splitapp.model.LedgerSnapshot;
+import com.splitapp.model.Settlement;
+import com.splitapp.repository.LedgerEntryRepository;
+import com.splitapp.repository.LedgerSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Append-only ledger of signed per-user balance deltas. Every money-moving
+ * mutation appends its deltas in the same transaction, under the group lock,
+ * and every {@code snapshot-interval} entries the group's running balances are
+ * folded into a snapshot. A balance at any point in time is the latest earlier
+ * snapshot plus a short aggregated tail, without reading the mutable tables.
+ * Amounts are recorded in the group's base currency, using the base amounts
+ * fixed when the expense was created, so a reversal always cancels exactly
+ * what was recorded.
+ */
+@Service
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerSnapshotRepository ledgerSnapshotRepository;
+    private final FxRateService fxRateService;
+    private final long snapshotInterval;
+
+    @Autowired
+    public LedgerService(
+            LedgerEntryRepository ledgerEntryRepository,
+            LedgerSnapshotRepository ledgerSnapshotRepository,
+            FxRateService fxRateService,
+            @Value("${splitapp.ledger.snapshot-interval:500}") long snapshotInterval) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerSnapshotRepository = ledgerSnapshotRepository;
+        this.fxRateService = fxRateService;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordExpense(Expense expense, List<ExpenseSplit> splits) {
+        append(expense.getGroup().getId(), LedgerEntry.EntryType.EXPENSE_RECORDED, expense.getId(),
+                expenseDeltas(expense, splits));
+    }
+
+    /**
+     * Records several new expenses at once: the entries are saved together and
+     * each group is checked for a due snapshot once, not once per expense.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordExpenses(List<Expense> expenses, List<List<ExpenseSplit>> splits) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>();
+        Set<Long> groupIds = new LinkedHashSet<>();
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            List<LedgerEntry> added = entries(expense.getGroup().getId(), LedgerEntry.EntryType.EXPENSE_RECORDED,
+                    expense.getId(), expenseDeltas(expense, splits.get(i)), now);
+            if (!added.isEmpty()) {
+                entries.addAll(added);
+                groupIds.add(expense.getGroup().getId());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        ledgerEntryRepository.saveAll(entries);
+        groupIds.forEach(groupId -> snapshotIfDue(groupId, now));
+    }
+
+    private Map<Long, BigDecimal> expenseDeltas(Expense expense, List<ExpenseSplit> splits) {
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        for (ExpenseSplit split : splits) {
+            if (!split.isSettled()) {
+                addDebt(deltas, split.getUser().getId(), expense.getPaidBy().getId(),
+                        fxRateService.baseAmountOf(split, expense));
+            }
+        }
+        return deltas;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordExpenseDeleted(Expense expense, List<ExpenseSplit> splits) {
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        for (ExpenseSplit split : splits) {
+            // Settled splits were already reversed when they were settled
+            if (!split.isSettled()) {
+                addDebt(deltas, expense.getPaidBy().getId(), split.getUser().getId(),
+                        fxRateService.baseAmountOf(split, expense));
+            }
+        }
+        append(expense.getGroup().getId(), LedgerEntry.EntryType.EXPENSE_DELETED, expense.getId(), deltas);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordSplitSettled(ExpenseSplit split) {
+        Expense expense = split.getExpense();
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        addDebt(deltas, expense.getPaidBy().getId(), split.getUser().getId(),
+                fxRateService.baseAmountOf(split, expense));
+        append(expense.getGroup().getId(), LedgerEntry.EntryType.SPLIT_SETTLED, split.getId(), deltas);
+    }
+
+    /**
+     * Records a settlement entering the COMPLETED state, or leaving it when
+     * {@code completed} is false.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordSettlement(Settlement settlement, boolean completed) {
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        Long fromUserId = settlement.getFromUser().getId();
+        Long toUserId = settlement.getToUser().getId();
+        if (completed) {
+            addDebt(deltas, toUserId, fromUserId, settlement.getAmount());
+        } else {
+            addDebt(deltas, fromUserId, toUserId, settlement.getAmount());
+        }
+        append(settlement.getGroup().getId(),
+                completed ? LedgerEntry.EntryType.SETTLEMENT_COMPLETED : LedgerEntry.EntryType.SETTLEMENT_REVERSED,
+                settlement.getId(), deltas);
+    }
+
+    /**
+     * Records a correction that brings the group's ledger balances in line
+     * with a recompute. The caller holds the group lock.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordAdjustment(Long groupId, Map<Long, BigDecimal> deltas) {
+        append(groupId, LedgerEntry.EntryType.RECONCILIATION_ADJUSTMENT, null, deltas);
+    }
+
+    /**
+     * Balances of the group as they stood at {@code asOf}, keyed by user id.
+     */
+    public Map<Long, BigDecimal> getBalancesAsOf(Long groupId, LocalDateTime asOf) {
+        Optional<LedgerSnapshot> snapshot = ledgerSnapshotRepository
+                .findFirstByGroupIdAndCoveredUntilLessThanEqualOrderByLastEntryIdDesc(groupId, asOf);
+        Map<Long, BigDecimal> balances = new HashMap<>(
+                snapshot.map(LedgerSnapshot::getBalances).orElse(Collections.emptyMap()));
+        long afterId = snapshot.map(LedgerSnapshot::getLastEntryId).orElse(0L);
+
+        for (Object[] row : ledgerEntryRepository.sumByUserAsOf(groupId, afterId, asOf)) {
+            balances.merge((Long) row[0], (BigDecimal) row[1], BigDecimal::add);
+        }
+        return balances;
+    }
+
+    private void addDebt(Map<Long, BigDecimal> deltas, Long debtorId, Long creditorId, BigDecimal amount) {
+        if (debtorId.equals(creditorId)) {
+            return;
+        }
+        deltas.merge(debtorId, amount.negate(), BigDecimal::add);
+        deltas.merge(creditorId, amount, BigDecimal::add);
+    }
+
+    private void append(Long groupId, LedgerEntry.EntryType type, Long referenceId, Map<Long, BigDecimal> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = entries(groupId, type, referenceId, deltas, now);
+        if (entries.isEmpty()) {
+            return;
+        }
+        ledgerEntryRepository.saveAll(entries);
+        snapshotIfDue(groupId, now);
+    }
+
+    private static List<LedgerEntry> entries(Long groupId, LedgerEntry.EntryType type, Long referenceId,
+                                             Map<Long, BigDecimal> deltas, LocalDateTime now) {
+        List<LedgerEntry> entries = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+            if (delta.getValue().signum() == 0) {
+                continue;
+            }
+            LedgerEntry entry = new LedgerEntry();
+            entry.setGroupId(groupId);
+            entry.setUserId(delta.getKey());
+            entry.setAmount(delta.getValue());
+            entry.setEntryType(type);
+            entry.setReferenceId(referenceId);
+            entry.setRecordedAt(now);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    // Callers hold the group lock, so no other entry of this group is in flight
+    private void snapshotIfDue(Long groupId, LocalDateTime now) {
+        Optional<LedgerSnapshot> latest = ledgerSnapshotRepository.findFirstByGroupIdOrderByLastEntryIdDesc(groupId);
+        long afterId = latest.map(LedgerSnapshot::getLastEntryId).orElse(0L);
+        if (ledgerEntryRepository.countByGroupIdAndIdGreaterThan(groupId, afterId) < snapshotInterval) {
+            return;
+        }
+
+        Long upToId = ledgerEntryRepository.findMaxIdByGroupId(groupId);
+        Map<Long, BigDecimal> balances = new HashMap<>(
+                latest.map(LedgerSnapshot::getBalances).orElse(Collections.emptyMap()));
+        for (Object[] row : ledgerEntryRepository.sumByUserInRange(groupId, afterId, upToId)) {
+            balances.merge((Long) row[0], (BigDecimal) row[1], BigDecimal::add);
+        }
+
+        LedgerSnapshot snapshot = new LedgerSnapshot();
+        snapshot.setGroupId(groupId);
+        snapshot.setLastEntryId(upToId);
+        snapshot.setCoveredUntil(now);
+        snapshot.setBalances(balances);
+        ledgerSnapshotRepository.save(snapshot);
+    }
+}
@@ -0,0 +1,209 @@
+package com.splitapp.service;
+
+import com.splitapp.model.OutboxEvent;
+import com.splitapp.outbox.OutboxHandler;
+import com.splitapp.repository.OutboxEventRepository;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox. Mutations publish an event as one more row written in
+ * their own transaction, so the event exists exactly when the change does and
+ * the write path never waits on whoever consumes it. The dispatcher drains the
+ * table in the background, batch by batch: a short transaction claims a batch
+ * with SELECT ... FOR UPDATE SKIP LOCKED and leases it, so several instances
+ * share the work, then the batch is handed to the {@link OutboxHandler}s and
+ * deleted once they all succeeded. If the instance dies mid-batch the lease
+ * expires and the batch is claimed again. Events no handler subscribes to are
+ * not written at all.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<OutboxHandler> handlerProvider;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final long retryBackoffSeconds;
+    private final int maxAttempts;
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Resolved on first use: handlers may depend on the services that publish
+    private volatile Map<OutboxEvent.EventType, List<OutboxHandler>> handlers;
+
+    @Autowired
+    public OutboxService(
+            OutboxEventRepository outboxEventRepository,
+            ObjectProvider<OutboxHandler> handlerProvider,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.outbox.batch-size:200}") int batchSize,
+            @Value("${splitapp.outbox.lease-seconds:60}") long leaseSeconds,
+            @Value("${splitapp.outbox.retry-backoff-seconds:10}") long retryBackoffSeconds,
+            @Value("${splitapp.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlerProvider = handlerProvider;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Publishes an event as part of the current transaction; it is delivered
+     * only if the transaction commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEvent.EventType eventType, Long groupId, Long aggregateId) {
+        if (aggregateId == null || !handlers().containsKey(eventType)) {
+            return;
+        }
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setGroupId(groupId);
+        event.setAggregateId(aggregateId);
+        event.setAvailableAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+
+    @Scheduled(initialDelayString = "${splitapp.outbox.initial-delay-ms:10000}",
+            fixedDelayString = "${splitapp.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        if (handlers().isEmpty() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            shardRouter.forEachShard(this::drainShard);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Delivers batches until nothing deliverable is left unleased
+    private void drainShard() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<OutboxEvent> events = claim();
+            if (events.isEmpty()) {
+                return;
+            }
+            deliver(events);
+        }
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = outboxEventRepository.findDueIdsForUpdate(now, batchSize).stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return Collections.<OutboxEvent>emptyList();
+            }
+            outboxEventRepository.lease(ids, leaseOwner, now.plusSeconds(leaseSeconds));
+            List<OutboxEvent> events = outboxEventRepository.findAllById(ids);
+            events.sort(Comparator.comparing(OutboxEvent::getId));
+            return events;
+        });
+    }
+
+    private void deliver(List<OutboxEvent> events) {
+        Set<Long> failed = new HashSet<>();
+        Map<OutboxHandler, List<OutboxEvent>> batches = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            for (OutboxHandler handler : handlers().getOrDefault(event.getEventType(), Collections.emptyList())) {
+                batches.computeIfAbsent(handler, h -> new ArrayList<>()).add(event);
+            }
+        }
+        for (Map.Entry<OutboxHandler, List<OutboxEvent>> batch : batches.entrySet()) {
+            try {
+                batch.getKey().handle(batch.getValue());
+            } catch (Exception e) {
+                // One bad event must not hold back the rest of the batch
+                logger.warn("Outbox handler {} failed on {} events, retrying individually",
+                        batch.getKey().getClass().getSimpleName(), batch.getValue().size(), e);
+                for (OutboxEvent event : batch.getValue()) {
+                    if (failed.contains(event.getId())) {
+                        continue;
+                    }
+                    try {
+                        batch.getKey().handle(Collections.singletonList(event));
+                    } catch (Exception individual) {
+                        recordFailure(event, individual);
+                        failed.add(event.getId());
+                    }
+                }
+            }
+        }
+
+        List<Long> delivered = events.stream()
+                .map(OutboxEvent::getId)
+                .filter(id -> !failed.contains(id))
+                .collect(Collectors.toList());
+        if (!delivered.isEmpty()) {
+            transactionTemplate.executeWithoutResult(
+                    status -> outboxEventRepository.deleteDelivered(delivered, leaseOwner));
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        LocalDateTime retryAt = attempts >= maxAttempts
+                ? null
+                : LocalDateTime.now().plusSeconds(retryBackoffSeconds << Math.min(attempts - 1, 16));
+        if (retryAt == null) {
+            logger.error("Outbox event {} ({}) failed {} times, giving up", event.getId(), event.getEventType(),
+                    attempts, e);
+        } else {
+            logger.warn("Outbox event {} ({}) failed, retrying at {}", event.getId(), event.getEventType(), retryAt, e);
+        }
+        String error = String.valueOf(e.getMessage());
+        String truncated = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.recordFailure(
+                event.getId(), leaseOwner, retryAt, truncated));
+    }
+
+    private Map<OutboxEvent.EventType, List<OutboxHandler>> handlers() {
+        Map<OutboxEvent.EventType, List<OutboxHandler>> resolved = handlers;
+        if (resolved == null) {
+            resolved = new EnumMap<>(OutboxEvent.EventType.class);
+            for (OutboxHandler handler : handlerProvider.orderedStream().collect(Collectors.toList())) {
+                for (OutboxEvent.EventType eventType : handler.getEventTypes()) {
+                    resolved.computeIfAbsent(eventType, type -> new ArrayList<>()).add(handler);
+                }
+            }
+            handlers = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,296 @@
+package com.splitapp.service;
+
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.dto.ReconciliationDiscrepancy;
+import com.splitapp.dto.ReconciliationReport;
+import com.splitapp.model.Group;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.GroupRepository;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the stored money state against a recompute from scratch: every
+ * expense's splits must add up to its amount, and every member's ledger
+ * balance must match the balance recomputed from unsettled splits and
+ * completed settlements. Group ids are read in chunks of {@code chunk-size}
+ * and each chunk is checked on a ForkJoinPool of {@code parallelism} workers.
+ * A worker holds one group at a time and the sums are computed by the
+ * database, so memory stays flat however large the groups are.
+ * <p>
+ * Each group is read in one short read-only transaction, which sees the ledger
+ * and the tables at the same instant, so writes racing the check never show
+ * up as discrepancies. With repair enabled, a group found off is checked again
+ * under its lock and corrected with a ledger adjustment; split totals are only
+ * reported, since there is no telling which side is right.
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private final GroupRepository groupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final BalanceService balanceService;
+    private final LedgerService ledgerService;
+    private final GroupLockRegistry groupLockRegistry;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int parallelism;
+    private final int chunkSize;
+    private final BigDecimal tolerance;
+    private final int maxReported;
+    private final AtomicReference<Run> latestRun = new AtomicReference<>();
+
+    @Autowired
+    public ReconciliationService(
+            GroupRepository groupRepository,
+            ExpenseRepository expenseRepository,
+            BalanceService balanceService,
+            LedgerService ledgerService,
+            GroupLockRegistry groupLockRegistry,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.reconciliation.parallelism:4}") int parallelism,
+            @Value("${splitapp.reconciliation.chunk-size:500}") int chunkSize,
+            @Value("${splitapp.reconciliation.tolerance:0.01}") BigDecimal tolerance,
+            @Value("${splitapp.reconciliation.max-reported:1000}") int maxReported) {
+        this.groupRepository = groupRepository;
+        this.expenseRepository = expenseRepository;
+        this.balanceService = balanceService;
+        this.ledgerService = ledgerService;
+        this.groupLockRegistry = groupLockRegistry;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.tolerance = tolerance;
+        this.maxReported = maxReported;
+    }
+
+    /**
+     * Starts a pass over all groups in the background.
+     *
+     * @return the report of the new run, or empty if a run is in progress
+     */
+    public Optional<ReconciliationReport> start(boolean repair) {
+        Run previous = latestRun.get();
+        if (previous != null && previous.status == ReconciliationReport.Status.RUNNING) {
+            return Optional.empty();
+        }
+        Run run = new Run(repair, maxReported);
+        if (!latestRun.compareAndSet(previous, run)) {
+            return Optional.empty();
+        }
+        Thread thread = new Thread(() -> execute(run), "reconciliation");
+        thread.setDaemon(true);
+        thread.start();
+        return Optional.of(run.toReport());
+    }
+
+    public Optional<ReconciliationReport> getLatestReport() {
+        return Optional.ofNullable(latestRun.get()).map(Run::toReport);
+    }
+
+    private void execute(Run run) {
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long afterId = 0;
+            while (true) {
+                List<Long> groupIds = groupRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize));
+                if (groupIds.isEmpty()) {
+                    break;
+                }
+                pool.invoke(new CheckGroups(run, groupIds, 0, groupIds.size()));
+                afterId = groupIds.get(groupIds.size() - 1);
+            }
+            run.finish(ReconciliationReport.Status.COMPLETED);
+            logger.info("Reconciled {} groups ({} failed) in {} ms: {} split total and {} balance discrepancies, "
+                            + "{} repaired", run.groupsChecked.get(), run.groupsFailed.get(),
+                    (System.nanoTime() - started) / 1_000_000, run.splitTotalDiscrepancies.get(),
+                    run.balanceDiscrepancies.get(), run.balancesRepaired.get());
+        } catch (RuntimeException e) {
+            run.finish(ReconciliationReport.Status.FAILED);
+            logger.error("Reconciliation failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void checkGroup(Run run, Long groupId) {
+        try {
+            ShardContext.callOn(shardRouter.shardForGroup(groupId), () -> {
+                Map<Long, BigDecimal[]> differences = readOnlyTransaction.execute(status -> {
+                    Optional<Group> group = groupRepository.findById(groupId);
+                    if (!group.isPresent()) {
+                        return Collections.<Long, BigDecimal[]>emptyMap();
+                    }
+                    for (Object[] row : expenseRepository.findSplitTotalMismatches(groupId)) {
+                        run.splitTotalDiscrepancies.incrementAndGet();
+                        run.report(new ReconciliationDiscrepancy(ReconciliationDiscrepancy.Type.SPLIT_TOTAL,
+                                groupId, (Long) row[0], (BigDecimal) row[1], (BigDecimal) row[2], false));
+                    }
+                    return balanceDifferences(group.get());
+                });
+                if (differences != null && !differences.isEmpty()) {
+                    if (run.repair) {
+                        differences = repair(groupId);
+                    }
+                    for (Map.Entry<Long, BigDecimal[]> difference : differences.entrySet()) {
+                        run.balanceDiscrepancies.incrementAndGet();
+                        if (run.repair) {
+                            run.balancesRepaired.incrementAndGet();
+                        }
+                        run.report(new ReconciliationDiscrepancy(ReconciliationDiscrepancy.Type.BALANCE, groupId,
+                                difference.getKey(), difference.getValue()[0], difference.getValue()[1], run.repair));
+                    }
+                }
+                return null;
+            });
+            run.groupsChecked.incrementAndGet();
+        } catch (RuntimeException e) {
+            run.groupsFailed.incrementAndGet();
+            logger.warn("Failed to reconcile group {}", groupId, e);
+        }
+    }
+
+    // Checks the group again under its lock, so nothing changes between the compare and the adjustment
+    private Map<Long, BigDecimal[]> repair(Long groupId) {
+        return transactionTemplate.execute(status -> {
+            groupLockRegistry.lockForTransaction(groupId);
+            Optional<Group> group = groupRepository.findById(groupId);
+            if (!group.isPresent()) {
+                return Collections.<Long, BigDecimal[]>emptyMap();
+            }
+            Map<Long, BigDecimal[]> differences = balanceDifferences(group.get());
+            Map<Long, BigDecimal> adjustments = new TreeMap<>();
+            for (Map.Entry<Long, BigDecimal[]> difference : differences.entrySet()) {
+                adjustments.put(difference.getKey(), difference.getValue()[0].subtract(difference.getValue()[1]));
+            }
+            if (!adjustments.isEmpty()) {
+                ledgerService.recordAdjustment(groupId, adjustments);
+            }
+            return differences;
+        });
+    }
+
+    // User id -> [recomputed balance, ledger balance], for the users whose balances differ
+    private Map<Long, BigDecimal[]> balanceDifferences(Group group) {
+        Map<Long, BigDecimal> recomputed = balanceService.computeBalances(group);
+        Map<Long, BigDecimal> ledger = ledgerService.getBalancesAsOf(group.getId(), LocalDateTime.now());
+        Set<Long> userIds = new HashSet<>(recomputed.keySet());
+        userIds.addAll(ledger.keySet());
+
+        Map<Long, BigDecimal[]> differences = new TreeMap<>();
+        for (Long userId : userIds) {
+            BigDecimal expected = recomputed.getOrDefault(userId, BigDecimal.ZERO);
+            BigDecimal actual = ledger.getOrDefault(userId, BigDecimal.ZERO);
+            if (expected.subtract(actual).abs().compareTo(tolerance) > 0) {
+                differences.put(userId, new BigDecimal[] {expected, actual});
+            }
+        }
+        return differences;
+    }
+
+    // Splits a chunk of group ids in halves until each task checks one group
+    private class CheckGroups extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final List<Long> groupIds;
+        private final int from;
+        private final int to;
+
+        CheckGroups(Run run, List<Long> groupIds, int from, int to) {
+            this.run = run;
+            this.groupIds = groupIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                checkGroup(run, groupIds.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CheckGroups(run, groupIds, from, middle), new CheckGroups(run, groupIds, middle, to));
+        }
+    }
+
+    private static class Run {
+        private final String runId = UUID.randomUUID().toString();
+        private final boolean repair;
+        private final int maxReported;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong groupsChecked = new AtomicLong();
+        private final AtomicLong groupsFailed = new AtomicLong();
+        private final AtomicLong splitTotalDiscrepancies = new AtomicLong();
+        private final AtomicLong balanceDiscrepancies = new AtomicLong();
+        private final AtomicLong balancesRepaired = new AtomicLong();
+        private final List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+        private volatile ReconciliationReport.Status status = ReconciliationReport.Status.RUNNING;
+        private volatile LocalDateTime finishedAt;
+
+        Run(boolean repair, int maxReported) {
+            this.repair = repair;
+            this.maxReported = maxReported;
+        }
+
+        synchronized void report(ReconciliationDiscrepancy discrepancy) {
+            if (discrepancies.size() < maxReported) {
+                discrepancies.add(discrepancy);
+            }
+        }
+
+        void finish(ReconciliationReport.Status finalStatus) {
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        synchronized ReconciliationReport toReport() {
+            ReconciliationReport report = new ReconciliationReport();
+            report.setRunId(runId);
+            report.setStatus(status);
+            report.setRepair(repair);
+            report.setStartedAt(startedAt);
+            report.setFinishedAt(finishedAt);
+            report.setGroupsChecked(groupsChecked.get());
+            report.setGroupsFailed(groupsFailed.get());
+            report.setSplitTotalDiscrepancies(splitTotalDiscrepancies.get());
+            report.setBalanceDiscrepancies(balanceDiscrepancies.get());
+            report.setBalancesRepaired(balancesRepaired.get());
+            report.setDiscrepancies(new ArrayList<>(discrepancies));
+            return report;
+        }
+    }
+}
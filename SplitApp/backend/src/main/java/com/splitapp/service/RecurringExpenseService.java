@@ -0,0 +1,334 @@
+package com.splitapp.service;
+
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Group;
+import com.splitapp.model.RecurringExpense;
+import com.splitapp.model.User;
+import com.splitapp.repository.RecurringExpenseRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Recurring expense schedules and the job that turns due schedules into
+ * ordinary expenses.
+ * <p>
+ * Due schedules are found through the {@code next_run_at} index and claimed a
+ * chunk at a time: a short transaction selects them with
+ * {@code FOR UPDATE SKIP LOCKED} and stamps a lease on them, so any number of
+ * workers, on any number of instances, claim disjoint chunks without waiting
+ * on each other. Each chunk's occurrences are then written in one transaction,
+ * as batched inserts, together with the advanced schedules; each schedule is
+ * validated once per chunk rather than once per occurrence. A lease that outlives a crashed worker
+ * simply expires and the schedules are claimed again.
+ */
+@Service
+public class RecurringExpenseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecurringExpenseService.class);
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final RecurringExpenseRepository recurringExpenseRepository;
+    private final ExpenseService expenseService;
+    private final GroupLockRegistry groupLockRegistry;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final boolean enabled;
+    private final int workers;
+    private final int chunkSize;
+    private final int maxCatchUp;
+    private final long leaseSeconds;
+    private final long failureBackoffSeconds;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public RecurringExpenseService(
+            RecurringExpenseRepository recurringExpenseRepository,
+            ExpenseService expenseService,
+            GroupLockRegistry groupLockRegistry,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.recurring.enabled:true}") boolean enabled,
+            @Value("${splitapp.recurring.workers:4}") int workers,
+            @Value("${splitapp.recurring.chunk-size:100}") int chunkSize,
+            @Value("${splitapp.recurring.max-catch-up:12}") int maxCatchUp,
+            @Value("${splitapp.recurring.lease-seconds:300}") long leaseSeconds,
+            @Value("${splitapp.recurring.failure-backoff-seconds:3600}") long failureBackoffSeconds) {
+        this.recurringExpenseRepository = recurringExpenseRepository;
+        this.expenseService = expenseService;
+        this.groupLockRegistry = groupLockRegistry;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.chunkSize = chunkSize;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.leaseSeconds = leaseSeconds;
+        this.failureBackoffSeconds = failureBackoffSeconds;
+    }
+
+    @RouteToShard(group = "#recurringExpense.groupId")
+    @Transactional
+    public RecurringExpense createRecurringExpense(RecurringExpense recurringExpense) {
+        if (recurringExpense.getFrequency() == null || recurringExpense.getIntervalCount() < 1) {
+            throw new RuntimeException("Recurring expense must have a frequency and a positive interval");
+        }
+        if (recurringExpense.getStartAt() == null) {
+            recurringExpense.setStartAt(LocalDateTime.now());
+        }
+        if (recurringExpense.getEndAt() != null && recurringExpense.getEndAt().isBefore(recurringExpense.getStartAt())) {
+            throw new RuntimeException("Recurring expense cannot end before it starts");
+        }
+
+        // Every occurrence must pass the same checks as a hand-entered expense
+        Expense first = occurrence(recurringExpense, recurringExpense.getStartAt());
+        expenseService.validateExpense(first, splitsOf(recurringExpense));
+        recurringExpense.setCurrency(first.getCurrency());
+
+        recurringExpense.setId(null);
+        recurringExpense.setVersion(null);
+        recurringExpense.setOccurrences(0);
+        recurringExpense.setNextRunAt(recurringExpense.getStartAt());
+        recurringExpense.setLeaseOwner(null);
+        recurringExpense.setLeaseUntil(null);
+        recurringExpense.setLastError(null);
+        return recurringExpenseRepository.save(recurringExpense);
+    }
+
+    @RouteToShard(row = "#id")
+    @Transactional(readOnly = true)
+    public Optional<RecurringExpense> getRecurringExpenseById(Long id) {
+        return recurringExpenseRepository.findById(id);
+    }
+
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<RecurringExpense> getRecurringExpensesByGroup(Long groupId) {
+        return recurringExpenseRepository.findByGroupIdOrderByNextRunAt(groupId);
+    }
+
+    /**
+     * Stops the schedule. Expenses it already created are kept.
+     */
+    @RouteToShard(row = "#id")
+    @Transactional
+    public void deleteRecurringExpense(Long id) {
+        RecurringExpense recurringExpense = recurringExpenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Recurring expense not found with id: " + id));
+        recurringExpenseRepository.delete(recurringExpense);
+    }
+
+    @Scheduled(initialDelayString = "${splitapp.recurring.initial-delay-ms:30000}",
+            fixedDelayString = "${splitapp.recurring.poll-interval-ms:60000}")
+    public void materializeDueExpenses() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            shardRouter.forEachShard(() -> runWorkers(pool));
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private void runWorkers(ExecutorService pool) {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        AtomicInteger created = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(pool.submit(ShardContext.propagate(() -> work(now, created))));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Recurring expense worker failed", e.getCause());
+            }
+        }
+        if (created.get() > 0) {
+            logger.info("Created {} recurring expense occurrences in {} ms", created.get(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // Claims and materializes chunks until nothing due as of `now` is left unleased
+    private void work(LocalDateTime now, AtomicInteger created) {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> ids = claim(now);
+            if (ids.isEmpty()) {
+                return;
+            }
+            created.addAndGet(materialize(ids, now));
+        }
+    }
+
+    private List<Long> claim(LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = recurringExpenseRepository.findDueIdsForUpdate(now, chunkSize).stream()
+                    .map(Number::longValue)
+                    .collect(Collectors.toList());
+            if (!ids.isEmpty()) {
+                recurringExpenseRepository.lease(ids, leaseOwner, LocalDateTime.now().plusSeconds(leaseSeconds));
+            }
+            return ids;
+        });
+    }
+
+    private int materialize(List<Long> ids, LocalDateTime now) {
+        try {
+            return transactionTemplate.execute(status -> materializeAll(renewLeases(ids), now));
+        } catch (RuntimeException e) {
+            // One broken schedule must not hold back the rest of the chunk
+            logger.warn("Materializing {} recurring expenses failed, retrying individually", ids.size(), e);
+            int created = 0;
+            for (Long id : ids) {
+                try {
+                    created += transactionTemplate.execute(status ->
+                            materializeAll(renewLeases(Collections.singletonList(id)), now));
+                } catch (RuntimeException individual) {
+                    recordFailure(id, individual);
+                }
+            }
+            return created;
+        }
+    }
+
+    /**
+     * Runs at the start of every chunk transaction. A long catch-up can outlast
+     * the lease taken at claim time, so the lease is renewed first, which also
+     * row-locks the schedules until the chunk commits. Schedules whose lease
+     * already went to another worker are left to it.
+     */
+    private List<RecurringExpense> renewLeases(List<Long> ids) {
+        recurringExpenseRepository.renewLease(ids, leaseOwner, LocalDateTime.now().plusSeconds(leaseSeconds));
+        List<RecurringExpense> schedules = recurringExpenseRepository.findAllById(ids).stream()
+                .filter(schedule -> leaseOwner.equals(schedule.getLeaseOwner()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        // Several groups are written in one transaction, so take their locks in the agreed order
+        schedules.sort(Comparator.comparing(RecurringExpense::getGroupId, groupLockRegistry.lockOrder()));
+        return schedules;
+    }
+
+    // Runs inside the chunk transaction; the schedules only advance if their occurrences commit
+    private int materializeAll(List<RecurringExpense> schedules, LocalDateTime now) {
+        List<Expense> expenses = new ArrayList<>();
+        List<List<ExpenseSplit>> splits = new ArrayList<>();
+        for (RecurringExpense schedule : schedules) {
+            int created = 0;
+            while (created < maxCatchUp && schedule.getNextRunAt() != null && !schedule.getNextRunAt().isAfter(now)) {
+                Expense expense = occurrence(schedule, schedule.getNextRunAt());
+                List<ExpenseSplit> shares = splitsOf(schedule);
+                // Occurrences differ only in their date, so the first one stands for the rest
+                if (created == 0) {
+                    expenseService.validateExpense(expense, shares);
+                }
+                expenses.add(expense);
+                splits.add(shares);
+                schedule.setOccurrences(schedule.getOccurrences() + 1);
+                schedule.setNextRunAt(nextRunAt(schedule));
+                created++;
+            }
+            // Still due after a capped catch-up: the next claim picks it up again
+            schedule.setLeaseOwner(null);
+            schedule.setLeaseUntil(null);
+            schedule.setLastError(null);
+        }
+        expenseService.createValidatedExpenses(expenses, splits);
+        recurringExpenseRepository.saveAll(schedules);
+        return expenses.size();
+    }
+
+    private void recordFailure(Long id, RuntimeException e) {
+        logger.warn("Recurring expense {} failed, retrying in {} s", id, failureBackoffSeconds, e);
+        String error = String.valueOf(e.getMessage());
+        String truncated = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        transactionTemplate.executeWithoutResult(status -> recurringExpenseRepository.recordFailure(
+                id, leaseOwner, LocalDateTime.now().plusSeconds(failureBackoffSeconds), truncated));
+    }
+
+    private static LocalDateTime nextRunAt(RecurringExpense schedule) {
+        long units = (long) schedule.getIntervalCount() * schedule.getOccurrences();
+        LocalDateTime start = schedule.getStartAt();
+        LocalDateTime next;
+        switch (schedule.getFrequency()) {
+            case DAILY:
+                next = start.plusDays(units);
+                break;
+            case WEEKLY:
+                next = start.plusWeeks(units);
+                break;
+            case MONTHLY:
+                next = start.plusMonths(units);
+                break;
+            default:
+                next = start.plusYears(units);
+                break;
+        }
+        return schedule.getEndAt() != null && next.isAfter(schedule.getEndAt()) ? null : next;
+    }
+
+    private static Expense occurrence(RecurringExpense schedule, LocalDateTime at) {
+        Group group = new Group();
+        group.setId(schedule.getGroupId());
+        User payer = new User();
+        payer.setId(schedule.getPaidById());
+
+        Expense expense = new Expense();
+        expense.setGroup(group);
+        expense.setPaidBy(payer);
+        expense.setDescription(schedule.getDescription());
+        expense.setAmount(schedule.getAmount());
+        expense.setCurrency(schedule.getCurrency());
+        expense.setExpenseDate(at);
+        return expense;
+    }
+
+    private static List<ExpenseSplit> splitsOf(RecurringExpense schedule) {
+        List<ExpenseSplit> splits = new ArrayList<>(schedule.getSplits().size());
+        for (Map.Entry<Long, BigDecimal> share : new TreeMap<>(schedule.getSplits()).entrySet()) {
+            User user = new User();
+            user.setId(share.getKey());
+            ExpenseSplit split = new ExpenseSplit();
+            split.setUser(user);
+            split.setAmount(share.getValue());
+            splits.add(split);
+        }
+        return splits;
+    }
+}
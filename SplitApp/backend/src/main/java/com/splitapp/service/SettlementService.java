@@ -1,71 +1,172 @@
 package com.splitapp.service;
 
-import com.splitapp.model.Group;
+import com.splitapp.audit.AuditLog;
+import com.splitapp.audit.AuditRecord;
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.concurrency.LocksGroup;
+import com.splitapp.concurrency.RetryOnOptimisticLock;
+import com.splitapp.model.ChangeLogEntry;
+import com.splitapp.model.OutboxEvent;
 import com.splitapp.model.Settlement;
-import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.projection.ProjectionQuery;
 import com.splitapp.repository.SettlementRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class SettlementService {
 
     private final SettlementRepository settlementRepository;
+    private final GroupVersionService groupVersionService;
+    private final GroupLockRegistry groupLockRegistry;
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final ChangeLogService changeLogService;
+    private final OutboxService outboxService;
+    private final AuditLog auditLog;
+    private final ProjectionQuery projectionQuery;
 
     @Autowired
-    public SettlementService(SettlementRepository settlementRepository) {
+    public SettlementService(
+            SettlementRepository settlementRepository,
+            GroupVersionService groupVersionService,
+            GroupLockRegistry groupLockRegistry,
+            LedgerService ledgerService,
+            ShardRouter shardRouter,
+            ChangeLogService changeLogService,
+            OutboxService outboxService,
+            AuditLog auditLog,
+            ProjectionQuery projectionQuery) {
         this.settlementRepository = settlementRepository;
+        this.groupVersionService = groupVersionService;
+        this.groupLockRegistry = groupLockRegistry;
+        this.ledgerService = ledgerService;
+        this.shardRouter = shardRouter;
+        this.changeLogService = changeLogService;
+        this.outboxService = outboxService;
+        this.auditLog = auditLog;
+        this.projectionQuery = projectionQuery;
     }
 
     public List<Settlement> getAllSettlements() {
-        return settlementRepository.findAll();
+        return shardRouter.scatter(settlementRepository::findAll);
     }
 
+    @RouteToShard(row = "#id")
+    @Transactional(readOnly = true)
     public Optional<Settlement> getSettlementById(Long id) {
         return settlementRepository.findById(id);
     }
 
-    public List<Settlement> getSettlementsByGroup(Group group) {
-        return settlementRepository.findByGroup(group);
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<Settlement> getSettlementsByGroup(Long groupId) {
+        return settlementRepository.findByGroupId(groupId);
     }
 
-    public List<Settlement> getSettlementsByFromUser(User user) {
-        return settlementRepository.findByFromUser(user);
+    public List<Map<String, Object>> selectAllSettlements(List<String> fields) {
+        return shardRouter.scatter(() -> projectionQuery.find(Projection.SETTLEMENT, fields, null));
     }
 
-    public List<Settlement> getSettlementsByToUser(User user) {
-        return settlementRepository.findByToUser(user);
+    @RouteToShard(row = "#id")
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> selectSettlementById(Long id, List<String> fields) {
+        return projectionQuery.find(Projection.SETTLEMENT, fields,
+                (root, query, builder) -> builder.equal(root.get("id"), id)).stream().findFirst();
+    }
+
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectSettlementsByGroup(Long groupId, List<String> fields) {
+        return projectionQuery.find(Projection.SETTLEMENT, fields,
+                (root, query, builder) -> builder.equal(root.get("group").get("id"), groupId));
+    }
+
+    public List<Settlement> getSettlementsByFromUser(Long userId) {
+        return shardRouter.scatter(() -> settlementRepository.findByFromUserId(userId));
+    }
+
+    public List<Settlement> getSettlementsByToUser(Long userId) {
+        return shardRouter.scatter(() -> settlementRepository.findByToUserId(userId));
     }
 
     public List<Settlement> getSettlementsByStatus(Settlement.SettlementStatus status) {
-        return settlementRepository.findByStatus(status);
+        return shardRouter.scatter(() -> settlementRepository.findByStatus(status));
     }
 
+    @RouteToShard(group = "#settlement.group?.id")
+    @LocksGroup("#settlement.group?.id")
     @Transactional
     public Settlement createSettlement(Settlement settlement) {
         // Initialize with PENDING status if not set
         if (settlement.getStatus() == null) {
             settlement.setStatus(Settlement.SettlementStatus.PENDING);
         }
-        return settlementRepository.save(settlement);
+        groupLockRegistry.lockForTransaction(settlement.getGroup().getId());
+        groupVersionService.bumpVersion(settlement.getGroup().getId());
+        Settlement savedSettlement = settlementRepository.save(settlement);
+        if (savedSettlement.getStatus() == Settlement.SettlementStatus.COMPLETED) {
+            ledgerService.recordSettlement(savedSettlement, true);
+        }
+        changeLogService.record(savedSettlement.getGroup().getId(), ChangeLogEntry.EntityType.SETTLEMENT,
+                savedSettlement.getId(), ChangeLogEntry.Operation.UPSERT);
+        outboxService.publish(OutboxEvent.EventType.SETTLEMENT_CREATED, savedSettlement.getGroup().getId(),
+                savedSettlement.getId());
+        auditLog.record(AuditRecord.forSettlement(AuditRecord.Action.SETTLEMENT_CREATED, savedSettlement,
+                savedSettlement.getStatus().name()));
+        return savedSettlement;
     }
 
+    @RouteToShard(row = "#id")
+    @LocksGroup("@settlementRepository.findGroupIdById(#id)")
     @Transactional
+    @RetryOnOptimisticLock
     public Settlement updateSettlementStatus(Long id, Settlement.SettlementStatus status) {
         return settlementRepository.findById(id)
                 .map(settlement -> {
+                    groupLockRegistry.lockForTransaction(settlement.getGroup().getId());
+                    boolean wasCompleted = settlement.getStatus() == Settlement.SettlementStatus.COMPLETED;
+                    boolean completed = status == Settlement.SettlementStatus.COMPLETED;
+                    if (wasCompleted != completed) {
+                        ledgerService.recordSettlement(settlement, completed);
+                    }
+                    if (settlement.getStatus() != status) {
+                        outboxService.publish(OutboxEvent.EventType.SETTLEMENT_STATUS_CHANGED,
+                                settlement.getGroup().getId(), id);
+                        auditLog.record(AuditRecord.forSettlement(AuditRecord.Action.SETTLEMENT_STATUS_CHANGED,
+                                settlement, settlement.getStatus() + " -> " + status));
+                    }
                     settlement.setStatus(status);
+                    groupVersionService.bumpVersion(settlement.getGroup().getId());
+                    changeLogService.record(settlement.getGroup().getId(), ChangeLogEntry.EntityType.SETTLEMENT, id,
+                            ChangeLogEntry.Operation.UPSERT);
                     return settlementRepository.save(settlement);
                 })
                 .orElseThrow(() -> new RuntimeException("Settlement not found with id: " + id));
     }
 
+    @RouteToShard(row = "#id")
+    @LocksGroup("@settlementRepository.findGroupIdById(#id)")
     @Transactional
     public void deleteSettlement(Long id) {
-        settlementRepository.deleteById(id);
+        Settlement settlement = settlementRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Settlement not found with id: " + id));
+        groupLockRegistry.lockForTransaction(settlement.getGroup().getId());
+        if (settlement.getStatus() == Settlement.SettlementStatus.COMPLETED) {
+            ledgerService.recordSettlement(settlement, false);
+        }
+        groupVersionService.bumpVersion(settlement.getGroup().getId());
+        changeLogService.record(settlement.getGroup().getId(), ChangeLogEntry.EntityType.SETTLEMENT, id,
+                ChangeLogEntry.Operation.DELETE);
+        outboxService.publish(OutboxEvent.EventType.SETTLEMENT_DELETED, settlement.getGroup().getId(), id);
+        settlementRepository.delete(settlement);
     }
 }
\ No newline at end of file
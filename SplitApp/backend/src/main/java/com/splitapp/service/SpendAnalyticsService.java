@@ -0,0 +1,364 @@
+package com.splitapp.service;
+
+import com.splitapp.concurrency.GroupLockRegistry;
+import com.splitapp.dto.CounterpartySpend;
+import com.splitapp.dto.MonthlySpend;
+import com.splitapp.dto.PayerSpend;
+import com.splitapp.dto.UserMonthlySpend;
+import com.splitapp.dto.UserSpendStats;
+import com.splitapp.fx.FxRateSnapshot;
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Group;
+import com.splitapp.model.GroupSpendRollup;
+import com.splitapp.model.User;
+import com.splitapp.model.UserSpendRollup;
+import com.splitapp.repository.ArchivedExpenseRepository;
+import com.splitapp.repository.ArchivedExpenseSplitRepository;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.ExpenseSplitRepository;
+import com.splitapp.repository.GroupRepository;
+import com.splitapp.repository.GroupSpendRollupRepository;
+import com.splitapp.repository.UserRepository;
+import com.splitapp.repository.UserSpendRollupRepository;
+import com.splitapp.sharding.RouteToShard;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spending analytics served from rollup tables rather than the expenses
+ * themselves. Every expense create and delete adjusts two rollups in the same
+ * transaction: per group, month and payer, and per user, group, month and
+ * counterparty. Stats reads therefore cost one row per month and payer (or
+ * counterparty), however many expenses there are. Amounts are kept in the
+ * group's base currency.
+ * <p>
+ * The backfill rebuilds the rollups of every group from the hot and archived
+ * expenses, several groups at a time, each under its group lock.
+ */
+@Service
+public class SpendAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpendAnalyticsService.class);
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final GroupSpendRollupRepository groupSpendRollupRepository;
+    private final UserSpendRollupRepository userSpendRollupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseSplitRepository expenseSplitRepository;
+    private final ArchivedExpenseRepository archivedExpenseRepository;
+    private final ArchivedExpenseSplitRepository archivedExpenseSplitRepository;
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final GroupLockRegistry groupLockRegistry;
+    private final GroupVersionService groupVersionService;
+    private final FxRateService fxRateService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean backfillOnStartup;
+    private final int backfillParallelism;
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    @Autowired
+    public SpendAnalyticsService(
+            GroupSpendRollupRepository groupSpendRollupRepository,
+            UserSpendRollupRepository userSpendRollupRepository,
+            ExpenseRepository expenseRepository,
+            ExpenseSplitRepository expenseSplitRepository,
+            ArchivedExpenseRepository archivedExpenseRepository,
+            ArchivedExpenseSplitRepository archivedExpenseSplitRepository,
+            GroupRepository groupRepository,
+            UserRepository userRepository,
+            GroupLockRegistry groupLockRegistry,
+            GroupVersionService groupVersionService,
+            FxRateService fxRateService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.analytics.backfill-on-startup:false}") boolean backfillOnStartup,
+            @Value("${splitapp.analytics.backfill-parallelism:4}") int backfillParallelism) {
+        this.groupSpendRollupRepository = groupSpendRollupRepository;
+        this.userSpendRollupRepository = userSpendRollupRepository;
+        this.expenseRepository = expenseRepository;
+        this.expenseSplitRepository = expenseSplitRepository;
+        this.archivedExpenseRepository = archivedExpenseRepository;
+        this.archivedExpenseSplitRepository = archivedExpenseSplitRepository;
+        this.groupRepository = groupRepository;
+        this.userRepository = userRepository;
+        this.groupLockRegistry = groupLockRegistry;
+        this.groupVersionService = groupVersionService;
+        this.fxRateService = fxRateService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillOnStartup = backfillOnStartup;
+        this.backfillParallelism = Math.max(1, backfillParallelism);
+    }
+
+    /**
+     * Adds a new expense to the rollups. Runs inside the creating transaction,
+     * after the group lock has been taken.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpense(Expense expense, List<ExpenseSplit> splits) {
+        apply(expense, splits, 1);
+    }
+
+    /**
+     * Takes a deleted expense back out of the rollups.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpenseDeleted(Expense expense, List<ExpenseSplit> splits) {
+        apply(expense, splits, -1);
+    }
+
+    /**
+     * Spend of a group per month, newest month first, broken down by payer.
+     */
+    @RouteToShard(group = "#groupId")
+    @Transactional(readOnly = true)
+    public List<MonthlySpend> getGroupStats(Long groupId) {
+        List<GroupSpendRollup> rollups = groupSpendRollupRepository.findByGroupIdOrderByMonthDescPayerIdAsc(groupId);
+        Set<Long> payerIds = new HashSet<>();
+        for (GroupSpendRollup rollup : rollups) {
+            payerIds.add(rollup.getPayerId());
+        }
+        Map<Long, String> names = userNames(payerIds);
+
+        Map<String, MonthlySpend> months = new LinkedHashMap<>();
+        for (GroupSpendRollup rollup : rollups) {
+            if (rollup.getExpenseCount() == 0) {
+                continue;
+            }
+            MonthlySpend month = months.computeIfAbsent(rollup.getMonth(),
+                    key -> new MonthlySpend(key, 0, BigDecimal.ZERO, new ArrayList<>()));
+            month.setExpenseCount(month.getExpenseCount() + rollup.getExpenseCount());
+            month.setTotalAmount(month.getTotalAmount().add(rollup.getTotalAmount()));
+            month.getPayers().add(new PayerSpend(rollup.getPayerId(), names.get(rollup.getPayerId()),
+                    rollup.getExpenseCount(), rollup.getTotalAmount()));
+        }
+        return new ArrayList<>(months.values());
+    }
+
+    /**
+     * Spend of a user across all their groups, per month and per counterparty.
+     * Each group's rollups live on that group's shard, so all shards are read.
+     */
+    public UserSpendStats getUserStats(Long userId) {
+        List<UserSpendRollup> rollups = shardRouter.scatter(() -> userSpendRollupRepository.findByUserId(userId));
+
+        // month -> [paid, own share, borrowed]
+        Map<String, BigDecimal[]> months = new TreeMap<>(Comparator.reverseOrder());
+        // counterparty id -> [lent, borrowed]
+        Map<Long, BigDecimal[]> counterparties = new HashMap<>();
+        for (UserSpendRollup rollup : rollups) {
+            BigDecimal[] month = months.computeIfAbsent(rollup.getMonth(),
+                    key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+            month[0] = month[0].add(rollup.getPaidAmount());
+            month[2] = month[2].add(rollup.getOwedAmount());
+            if (rollup.getCounterpartyId().equals(userId)) {
+                month[1] = month[1].add(rollup.getPaidAmount());
+                continue;
+            }
+            BigDecimal[] counterparty = counterparties.computeIfAbsent(rollup.getCounterpartyId(),
+                    key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+            counterparty[0] = counterparty[0].add(rollup.getPaidAmount());
+            counterparty[1] = counterparty[1].add(rollup.getOwedAmount());
+        }
+
+        List<UserMonthlySpend> monthlySpend = new ArrayList<>(months.size());
+        for (Map.Entry<String, BigDecimal[]> month : months.entrySet()) {
+            BigDecimal[] totals = month.getValue();
+            if (totals[0].signum() == 0 && totals[2].signum() == 0) {
+                continue;
+            }
+            monthlySpend.add(new UserMonthlySpend(month.getKey(), totals[0], totals[1].add(totals[2]),
+                    totals[0].subtract(totals[1]), totals[2]));
+        }
+
+        Map<Long, String> names = userNames(counterparties.keySet());
+        List<CounterpartySpend> counterpartySpend = new ArrayList<>(counterparties.size());
+        for (Map.Entry<Long, BigDecimal[]> counterparty : counterparties.entrySet()) {
+            BigDecimal[] totals = counterparty.getValue();
+            if (totals[0].signum() != 0 || totals[1].signum() != 0) {
+                counterpartySpend.add(new CounterpartySpend(counterparty.getKey(), names.get(counterparty.getKey()),
+                        totals[0], totals[1]));
+            }
+        }
+        counterpartySpend.sort(Comparator.comparing(
+                (CounterpartySpend spend) -> spend.getLent().add(spend.getBorrowed())).reversed());
+        return new UserSpendStats(userId, monthlySpend, counterpartySpend);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    /**
+     * Rebuilds the rollups of every group from its hot and archived expenses,
+     * {@code backfill-parallelism} groups at a time. Writes on this instance
+     * wait for the group being rebuilt, so no delta is lost or counted twice.
+     */
+    public void backfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(backfillParallelism);
+        try {
+            List<Long> groupIds = groupRepository.findAllIds();
+            AtomicInteger failed = new AtomicInteger();
+            List<Future<?>> tasks = new ArrayList<>(groupIds.size());
+            for (Long groupId : groupIds) {
+                tasks.add(executor.submit(() -> {
+                    try {
+                        ShardContext.callOn(shardRouter.shardForGroup(groupId), () -> {
+                            transactionTemplate.executeWithoutResult(status -> rebuildGroup(groupId));
+                            return null;
+                        });
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.error("Failed to rebuild spend rollups of group {}", groupId, e);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            logger.info("Rebuilt spend rollups of {} groups ({} failed) in {} ms", groupIds.size(), failed.get(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Spend rollup backfill failed", e);
+        } finally {
+            executor.shutdownNow();
+            backfilling.set(false);
+        }
+    }
+
+    private void rebuildGroup(Long groupId) {
+        groupLockRegistry.lockForTransaction(groupId);
+        groupSpendRollupRepository.deleteByGroupId(groupId);
+        userSpendRollupRepository.deleteByGroupId(groupId);
+        Optional<Group> group = groupRepository.findById(groupId);
+        if (!group.isPresent()) {
+            return;
+        }
+        String baseCurrency = fxRateService.baseCurrencyOf(group.get());
+        FxRateSnapshot rates = fxRateService.snapshot();
+
+        // month -> payer id -> [count, total]; sorted so rows are written in key order
+        Map<String, Map<Long, BigDecimal[]>> payers = new TreeMap<>();
+        List<Object[]> expenseRows = new ArrayList<>(expenseRepository.sumSpendByMonthAndPayer(groupId));
+        expenseRows.addAll(archivedExpenseRepository.sumSpendByMonthAndPayer(groupId));
+        for (Object[] row : expenseRows) {
+            BigDecimal[] totals = payers
+                    .computeIfAbsent(month(row), key -> new TreeMap<>())
+                    .computeIfAbsent((Long) row[4], key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+            totals[0] = totals[0].add(BigDecimal.valueOf(((Number) row[5]).longValue()));
+            totals[1] = totals[1].add(toBaseCurrency(rates, row, baseCurrency));
+        }
+        payers.forEach((month, byPayer) -> byPayer.forEach((payerId, totals) ->
+                groupSpendRollupRepository.addToRollup(groupId, month, payerId,
+                        totals[0].longValue(), totals[1])));
+
+        // month -> payer id -> split user id -> share
+        Map<String, Map<Long, Map<Long, BigDecimal>>> shares = new TreeMap<>();
+        List<Object[]> shareRows = new ArrayList<>(expenseSplitRepository.sumSharesByMonth(groupId));
+        shareRows.addAll(archivedExpenseSplitRepository.sumSharesByMonth(groupId));
+        for (Object[] row : shareRows) {
+            shares.computeIfAbsent(month(row), key -> new TreeMap<>())
+                    .computeIfAbsent((Long) row[4], key -> new TreeMap<>())
+                    .merge((Long) row[5], toBaseCurrency(rates, row, baseCurrency), BigDecimal::add);
+        }
+        shares.forEach((month, byPayer) -> byPayer.forEach((payerId, byUser) -> byUser.forEach((userId, share) ->
+                addShare(groupId, month, payerId, userId, share))));
+        // Cached stats responses are keyed on the group version
+        groupVersionService.bumpVersion(groupId);
+    }
+
+    private void apply(Expense expense, Collection<ExpenseSplit> splits, int sign) {
+        if (expense.getExpenseDate() == null) {
+            // Never counted by the backfill either
+            return;
+        }
+        Long groupId = expense.getGroup().getId();
+        Long payerId = expense.getPaidBy().getId();
+        String month = expense.getExpenseDate().format(MONTH_FORMAT);
+        BigDecimal signum = BigDecimal.valueOf(sign);
+        groupSpendRollupRepository.addToRollup(groupId, month, payerId, sign,
+                fxRateService.baseAmountOf(expense).multiply(signum));
+
+        // Sorted by user id so concurrent writers always take row locks in the same order
+        Map<Long, BigDecimal> shares = new TreeMap<>();
+        for (ExpenseSplit split : splits) {
+            shares.merge(split.getUser().getId(), fxRateService.baseAmountOf(split, expense), BigDecimal::add);
+        }
+        for (Map.Entry<Long, BigDecimal> share : shares.entrySet()) {
+            addShare(groupId, month, payerId, share.getKey(), share.getValue().multiply(signum));
+        }
+    }
+
+    private void addShare(Long groupId, String month, Long payerId, Long userId, BigDecimal share) {
+        userSpendRollupRepository.addToRollup(payerId, groupId, month, userId, share, BigDecimal.ZERO);
+        if (!userId.equals(payerId)) {
+            userSpendRollupRepository.addToRollup(userId, groupId, month, payerId, BigDecimal.ZERO, share);
+        }
+    }
+
+    private Map<Long, String> userNames(Collection<Long> userIds) {
+        Map<Long, String> names = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            names.put(user.getId(), user.getName());
+        }
+        return names;
+    }
+
+    // Rows start with [year, month, day, currency] and end with [amount without a base amount, sum of base amounts];
+    // a null currency is the base currency
+    private static BigDecimal toBaseCurrency(FxRateSnapshot rates, Object[] row, String baseCurrency) {
+        String currency = row[3] != null ? (String) row[3] : baseCurrency;
+        LocalDate day = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                ((Number) row[2]).intValue());
+        BigDecimal unconverted = (BigDecimal) row[row.length - 2];
+        BigDecimal converted = (BigDecimal) row[row.length - 1];
+        return rates.convert(unconverted, currency, baseCurrency, day).add(converted);
+    }
+
+    private static String month(Object[] row) {
+        return String.format("%04d-%02d", ((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+    }
+}
@@ -0,0 +1,163 @@
+package com.splitapp.service;
+
+import com.splitapp.dto.SyncMembership;
+import com.splitapp.dto.SyncResponse;
+import com.splitapp.dto.SyncTombstone;
+import com.splitapp.model.ChangeLogEntry;
+import com.splitapp.model.ChangeSequence;
+import com.splitapp.repository.ChangeLogRepository;
+import com.splitapp.repository.ChangeSequenceRepository;
+import com.splitapp.repository.ExpenseRepository;
+import com.splitapp.repository.ExpenseSplitRepository;
+import com.splitapp.repository.SettlementRepository;
+import com.splitapp.sharding.ShardContext;
+import com.splitapp.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the changes to a set of groups after a cursor, so clients keep their
+ * lists current without downloading them again. The cursor holds one position
+ * in the change sequence per shard, dot separated; without sharding it is a
+ * plain sequence number. Each shard is read in one read-only transaction, so
+ * the rows returned are those of the same snapshot the cursor describes.
+ */
+@Service
+public class SyncService {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseSplitRepository expenseSplitRepository;
+    private final SettlementRepository settlementRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int pageSize;
+
+    @Autowired
+    public SyncService(
+            ChangeLogRepository changeLogRepository,
+            ChangeSequenceRepository changeSequenceRepository,
+            ExpenseRepository expenseRepository,
+            ExpenseSplitRepository expenseSplitRepository,
+            SettlementRepository settlementRepository,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${splitapp.sync.page-size:1000}") int pageSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.expenseRepository = expenseRepository;
+        this.expenseSplitRepository = expenseSplitRepository;
+        this.settlementRepository = settlementRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param since cursor returned by the previous call; null or empty starts
+     *              from the beginning of the retained history
+     * @throws IllegalArgumentException when the cursor cannot be parsed
+     */
+    public SyncResponse getChanges(String since, Collection<Long> groupIds) {
+        long[] cursor = parseCursor(since, shardRouter.getShardCount());
+        Map<Integer, List<Long>> groupsByShard = groupIds.stream().distinct()
+                .collect(Collectors.groupingBy(shardRouter::shardForGroup, TreeMap::new, Collectors.toList()));
+
+        SyncResponse response = new SyncResponse();
+        for (Map.Entry<Integer, List<Long>> shard : groupsByShard.entrySet()) {
+            int index = shard.getKey();
+            ShardContext.callOn(index, () -> readOnlyTransaction.execute(status -> {
+                cursor[index] = readShard(cursor[index], shard.getValue(), response);
+                return null;
+            }));
+        }
+        response.setCursor(Arrays.stream(cursor).mapToObj(Long::toString).collect(Collectors.joining(".")));
+        return response;
+    }
+
+    private long readShard(long since, List<Long> groupIds, SyncResponse response) {
+        ChangeSequence sequence = changeSequenceRepository.findById(ChangeSequenceRepository.SEQUENCE_ID)
+                .orElseGet(ChangeSequence::new);
+        if (since < sequence.getPurgedThrough()) {
+            response.setResetRequired(true);
+            return sequence.getLastSeq();
+        }
+        List<ChangeLogEntry> changes = changeLogRepository.findChanges(groupIds, since, sequence.getLastSeq(),
+                PageRequest.of(0, pageSize));
+
+        // Only the latest operation on each row matters; a membership row is a user in one group
+        Map<ChangeLogEntry.EntityType, Map<String, ChangeLogEntry>> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry change : changes) {
+            latest.computeIfAbsent(change.getEntityType(), type -> new LinkedHashMap<>())
+                    .put(change.getGroupId() + ":" + change.getEntityId(), change);
+        }
+        for (Map.Entry<ChangeLogEntry.EntityType, Map<String, ChangeLogEntry>> type : latest.entrySet()) {
+            List<Long> upserted = new ArrayList<>();
+            for (ChangeLogEntry change : type.getValue().values()) {
+                if (change.getOperation() == ChangeLogEntry.Operation.DELETE) {
+                    response.getTombstones().add(
+                            new SyncTombstone(change.getEntityType(), change.getEntityId(), change.getGroupId()));
+                } else if (change.getEntityType() == ChangeLogEntry.EntityType.MEMBERSHIP) {
+                    response.getMemberships().add(new SyncMembership(change.getGroupId(), change.getEntityId()));
+                } else {
+                    upserted.add(change.getEntityId());
+                }
+            }
+            // A row missing here was deleted by a change past this page, which the next page brings
+            if (!upserted.isEmpty()) {
+                switch (type.getKey()) {
+                    case EXPENSE:
+                        response.getExpenses().addAll(expenseRepository.findAllById(upserted));
+                        break;
+                    case EXPENSE_SPLIT:
+                        response.getExpenseSplits().addAll(expenseSplitRepository.findAllById(upserted));
+                        break;
+                    case SETTLEMENT:
+                        response.getSettlements().addAll(settlementRepository.findAllById(upserted));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (changes.size() < pageSize) {
+            return Math.max(since, sequence.getLastSeq());
+        }
+        response.setHasMore(true);
+        return changes.get(changes.size() - 1).getSeq();
+    }
+
+    private static long[] parseCursor(String since, int shardCount) {
+        long[] cursor = new long[shardCount];
+        if (since == null || since.isEmpty()) {
+            return cursor;
+        }
+        String[] positions = since.split("\\.");
+        if (positions.length > shardCount) {
+            throw new IllegalArgumentException("Cursor does not match the shard layout: " + since);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            cursor[i] = Long.parseLong(positions[i]);
+            if (cursor[i] < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + since);
+            }
+        }
+        return cursor;
+    }
+}
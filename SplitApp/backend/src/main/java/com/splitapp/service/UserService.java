@@ -1,35 +1,93 @@
 package com.splitapp.service;
 
 import com.splitapp.model.User;
+import com.splitapp.projection.Projection;
+import com.splitapp.projection.ProjectionQuery;
+import com.splitapp.repository.GroupRepository;
 import com.splitapp.repository.UserRepository;
+import com.splitapp.sharding.ReferenceDataMirror;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class UserService {
 
+    private static final Specification<User> NOT_DELETED =
+            (root, query, builder) -> builder.isNull(root.get("deletedAt"));
+
     private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final GroupService groupService;
     private final PasswordEncoder passwordEncoder;
+    private final ReferenceDataMirror referenceDataMirror;
+    private final ProjectionQuery projectionQuery;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(
+            UserRepository userRepository,
+            GroupRepository groupRepository,
+            GroupService groupService,
+            PasswordEncoder passwordEncoder,
+            ReferenceDataMirror referenceDataMirror,
+            ProjectionQuery projectionQuery) {
         this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.groupService = groupService;
         this.passwordEncoder = passwordEncoder;
+        this.referenceDataMirror = referenceDataMirror;
+        this.projectionQuery = projectionQuery;
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
+    public boolean existsById(Long id) {
+        return userRepository.existsById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return userRepository.findByIdInAndDeletedAtIsNullOrderById(ids);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectAllUsers(List<String> fields) {
+        return projectionQuery.find(Projection.USER, fields, NOT_DELETED);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> selectUserById(Long id, List<String> fields) {
+        return projectionQuery.find(Projection.USER, fields,
+                NOT_DELETED.and((root, query, builder) -> builder.equal(root.get("id"), id))).stream().findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> selectUsersByIds(Collection<Long> ids, List<String> fields) {
+        return projectionQuery.find(Projection.USER, fields,
+                NOT_DELETED.and((root, query, builder) -> root.get("id").in(ids)));
+    }
+
+    @Transactional(readOnly = true)
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -43,13 +101,29 @@ public class UserService {
         // Encode the password before saving
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        referenceDataMirror.mirrorUserAfterCommit(savedUser.getId());
+        return savedUser;
     }
 
     @Transactional
     public User updateUser(Long id, User userDetails) {
         return userRepository.findById(id)
                 .map(existingUser -> {
+                    // Only update email if provided
+                    boolean emailChanged = userDetails.getEmail() != null && !userDetails.getEmail().isEmpty()
+                            && !userDetails.getEmail().equals(existingUser.getEmail());
+                    if (emailChanged && userRepository.existsByEmail(userDetails.getEmail())) {
+                        throw new RuntimeException("Email already in use");
+                    }
+                    // Group responses show their members and creator as they are now
+                    boolean shownInGroups = emailChanged
+                            || !Objects.equals(existingUser.getName(), userDetails.getName())
+                            || !Objects.equals(existingUser.getPhone(), userDetails.getPhone())
+                            || !Objects.equals(existingUser.getAvatarUrl(), userDetails.getAvatarUrl());
+                    if (emailChanged) {
+                        existingUser.setEmail(userDetails.getEmail());
+                    }
                     existingUser.setName(userDetails.getName());
                     existingUser.setPhone(userDetails.getPhone());
                     existingUser.setAvatarUrl(userDetails.getAvatarUrl());
@@ -59,13 +133,31 @@ public class UserService {
                         existingUser.setPassword(passwordEncoder.encode(userDetails.getPassword()));
                     }
                     
+                    referenceDataMirror.mirrorUserAfterCommit(id);
+                    if (shownInGroups) {
+                        // Registered after the mirror, so the shards have the new values by the time it runs
+                        Set<Long> groupIds = new TreeSet<>(groupRepository.findIdsByMemberId(id));
+                        groupRepository.findByCreatorIdAndDeletedAtIsNull(id)
+                                .forEach(group -> groupIds.add(group.getId()));
+                        groupService.bumpVersionsAfterCommit(groupIds);
+                    }
                     return userRepository.save(existingUser);
                 })
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
 
+    /**
+     * Hides the user from every lookup at once; DeletionService takes them out
+     * of their groups and removes the row in the background.
+     */
     @Transactional
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        user.setDeletedAt(LocalDateTime.now());
+        // Frees the address for a new account; the name stays on the expenses the user shared
+        user.setEmail("deleted-" + id + "@deleted.invalid");
+        referenceDataMirror.mirrorUserAfterCommit(id);
+        userRepository.save(user);
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.splitapp.sharding;
+
+/**
+ * Spreads groups over the shards by group id modulo the shard count.
+ */
+public class ModuloShardResolver implements ShardResolver {
+
+    @Override
+    public int shardForGroup(long groupId, int shardCount) {
+        return (int) Math.floorMod(groupId, (long) shardCount);
+    }
+}
@@ -0,0 +1,253 @@
+package com.splitapp.sharding;
+
+import com.splitapp.model.ReferenceMirrorRetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps users, groups and group memberships present on every shard, so the
+ * group-scoped rows on a shard can reference them locally. After the writing
+ * transaction commits, the changed rows are copied from the shard they were
+ * written on to all other shards.
+ * <p>
+ * Users and groups are updated in place rather than replaced, because expenses
+ * and settlements reference them. Memberships are replaced per group and get
+ * fresh ids on each shard.
+ * <p>
+ * A copy that fails is recorded in {@code reference_mirror_retries} on the
+ * source shard and retried with exponential backoff until it goes through.
+ * Each attempt copies the row as it is now, so retrying is always safe and the
+ * shards converge on the latest state.
+ */
+@Component
+public class ReferenceDataMirror {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataMirror.class);
+    private static final int MAX_ERROR_LENGTH = 512;
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private final ShardRouter shardRouter;
+    private final long retryBackoffSeconds;
+    private final long maxRetryBackoffSeconds;
+    private final AtomicBoolean retrying = new AtomicBoolean();
+
+    @Autowired
+    public ReferenceDataMirror(
+            ShardRouter shardRouter,
+            @Value("${splitapp.sharding.mirror-retry-backoff-seconds:10}") long retryBackoffSeconds,
+            @Value("${splitapp.sharding.mirror-retry-max-backoff-seconds:3600}") long maxRetryBackoffSeconds) {
+        this.shardRouter = shardRouter;
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.maxRetryBackoffSeconds = maxRetryBackoffSeconds;
+    }
+
+    public void mirrorUserAfterCommit(Long userId) {
+        if (userId != null) {
+            afterCommit(ReferenceMirrorRetry.EntityType.USER, userId);
+        }
+    }
+
+    public void mirrorGroupAfterCommit(Long groupId) {
+        if (groupId != null) {
+            afterCommit(ReferenceMirrorRetry.EntityType.GROUP, groupId);
+        }
+    }
+
+    private void afterCommit(ReferenceMirrorRetry.EntityType type, Long id) {
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        Integer current = ShardContext.current();
+        int source = current != null ? current : 0;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            run(type, id, source);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                run(type, id, source);
+            }
+        });
+    }
+
+    private void run(ReferenceMirrorRetry.EntityType type, Long id, int source) {
+        try {
+            mirror(type, id, source);
+        } catch (RuntimeException e) {
+            // The write itself is committed; the retry job brings the other shards in line
+            logger.warn("Failed to mirror {} {} from shard {}, will retry", type, id, source, e);
+            try {
+                recordFailure(jdbc(source), type, id, 0, e);
+            } catch (RuntimeException recording) {
+                logger.error("Failed to record the mirror retry of {} {} on shard {}", type, id, source, recording);
+            }
+        }
+    }
+
+    /**
+     * Retries the failed copies that are due, on every shard. Copies that fail
+     * again are pushed back, twice as far each time.
+     */
+    @Scheduled(fixedDelayString = "${splitapp.sharding.mirror-retry-interval-ms:30000}")
+    public void retryFailedMirrors() {
+        if (!shardRouter.isEnabled() || !retrying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                try {
+                    retryShard(shard);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to read the mirror retries of shard {}", shard, e);
+                }
+            }
+        } finally {
+            retrying.set(false);
+        }
+    }
+
+    private void retryShard(int source) {
+        JdbcTemplate jdbc = jdbc(source);
+        List<Map<String, Object>> due = jdbc.queryForList(
+                "SELECT id, entity_type, entity_id, attempts FROM reference_mirror_retries "
+                        + "WHERE next_attempt_at <= ? ORDER BY next_attempt_at LIMIT " + RETRY_BATCH_SIZE,
+                Timestamp.valueOf(LocalDateTime.now()));
+        for (Map<String, Object> retry : due) {
+            ReferenceMirrorRetry.EntityType type =
+                    ReferenceMirrorRetry.EntityType.valueOf((String) retry.get("entity_type"));
+            Long id = ((Number) retry.get("entity_id")).longValue();
+            int attempts = ((Number) retry.get("attempts")).intValue();
+            try {
+                mirror(type, id, source);
+                // A failure recorded while this attempt ran must stay
+                jdbc.update("DELETE FROM reference_mirror_retries WHERE id = ? AND attempts = ?",
+                        retry.get("id"), attempts);
+                logger.info("Mirrored {} {} from shard {} after {} failed attempts", type, id, source, attempts);
+            } catch (RuntimeException e) {
+                logger.warn("Retry {} of mirroring {} {} from shard {} failed", attempts + 1, type, id, source, e);
+                recordFailure(jdbc, type, id, attempts, e);
+            }
+        }
+    }
+
+    private void recordFailure(JdbcTemplate jdbc, ReferenceMirrorRetry.EntityType type, Long id, int attempts,
+                               RuntimeException e) {
+        long backoff = Math.min(maxRetryBackoffSeconds, retryBackoffSeconds << Math.min(attempts, 20));
+        Timestamp nextAttemptAt = Timestamp.valueOf(LocalDateTime.now().plusSeconds(backoff));
+        String error = String.valueOf(e.getMessage());
+        String truncated = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        int updated = jdbc.update("UPDATE reference_mirror_retries SET attempts = attempts + 1, next_attempt_at = ?, "
+                + "last_error = ? WHERE entity_type = ? AND entity_id = ?", nextAttemptAt, truncated, type.name(), id);
+        if (updated == 0) {
+            jdbc.update("INSERT INTO reference_mirror_retries (entity_type, entity_id, attempts, next_attempt_at, "
+                    + "last_error) VALUES (?, ?, 1, ?, ?)", type.name(), id, nextAttemptAt, truncated);
+        }
+    }
+
+    private void mirror(ReferenceMirrorRetry.EntityType type, Long id, int source) {
+        if (type == ReferenceMirrorRetry.EntityType.USER) {
+            mirrorUser(source, id);
+        } else {
+            mirrorGroup(source, id);
+        }
+    }
+
+    private void mirrorUser(int source, Long userId) {
+        List<Map<String, Object>> users = jdbc(source).queryForList("SELECT * FROM users WHERE id = ?", userId);
+        forEachOtherShard(source, target -> {
+            if (users.isEmpty()) {
+                target.update("DELETE FROM users WHERE id = ?", userId);
+            } else {
+                upsert(target, "users", users.get(0), userId);
+            }
+        });
+    }
+
+    private void mirrorGroup(int source, Long groupId) {
+        JdbcTemplate sourceJdbc = jdbc(source);
+        List<Map<String, Object>> groups = sourceJdbc.queryForList("SELECT * FROM user_groups WHERE id = ?", groupId);
+        List<Map<String, Object>> members = groups.isEmpty()
+                ? Collections.emptyList()
+                : sourceJdbc.queryForList("SELECT * FROM group_members WHERE group_id = ?", groupId);
+
+        forEachOtherShard(source, target -> {
+            target.update("DELETE FROM group_members WHERE group_id = ?", groupId);
+            if (groups.isEmpty()) {
+                target.update("DELETE FROM user_groups WHERE id = ?", groupId);
+                return;
+            }
+            upsert(target, "user_groups", groups.get(0), groupId);
+            for (Map<String, Object> member : members) {
+                insert(target, "group_members", withoutId(member));
+            }
+        });
+    }
+
+    private void forEachOtherShard(int source, Consumer<JdbcTemplate> write) {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            if (shard == source) {
+                continue;
+            }
+            DataSource dataSource = shardRouter.getShardDataSource(shard);
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                    .executeWithoutResult(status -> write.accept(new JdbcTemplate(dataSource)));
+        }
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate(shardRouter.getShardDataSource(shard));
+    }
+
+    private static void upsert(JdbcTemplate jdbc, String table, Map<String, Object> row, Long id) {
+        List<String> assignments = new ArrayList<>(row.size());
+        List<Object> values = new ArrayList<>(row.size() + 1);
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+            assignments.add(column.getKey() + " = ?");
+            values.add(column.getValue());
+        }
+        values.add(id);
+        int updated = jdbc.update("UPDATE " + table + " SET " + String.join(", ", assignments) + " WHERE id = ?",
+                values.toArray());
+        if (updated == 0) {
+            insert(jdbc, table, row);
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbc, String table, Map<String, Object> row) {
+        String columns = String.join(", ", row.keySet());
+        String placeholders = String.join(", ", Collections.nCopies(row.size(), "?"));
+        jdbc.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")",
+                row.values().toArray());
+    }
+
+    private static Map<String, Object> withoutId(Map<String, Object> row) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        row.forEach((column, value) -> {
+            if (!"id".equalsIgnoreCase(column)) {
+                copy.put(column, value);
+            }
+        });
+        return copy;
+    }
+}
@@ -0,0 +1,23 @@
+package com.splitapp.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method, and any transaction it starts, on the shard that
+ * owns the data it touches. Exactly one of the two expressions is set; both are
+ * SpEL over the method arguments, e.g. {@code "#expense.group?.id"} or
+ * {@code "#id"}. A null result routes to shard 0.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RouteToShard {
+
+    /** Expression yielding the id of the group whose shard to use. */
+    String group() default "";
+
+    /** Expression yielding the id of an expense, expense split or settlement row. */
+    String row() default "";
+}
@@ -0,0 +1,62 @@
+package com.splitapp.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works against. Set by {@link ShardRoutingAspect}
+ * before a transaction starts and read by {@link ShardRoutingDataSource} when
+ * the connection is fetched. Without a shard, queries go to shard 0.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the action against the given shard and restores the previous shard
+     * afterwards.
+     */
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        Integer previous = current();
+        set(shard);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Carries the caller's shard over to a task run on another thread.
+     */
+    public static Runnable propagate(Runnable task) {
+        Integer shard = current();
+        return () -> {
+            Integer previous = current();
+            set(shard);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.splitapp.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves the id counters of the group-scoped tables on shard N to start at
+ * {@code N << ROW_ID_SHIFT}, so an expense, split, settlement or recurring
+ * expense id alone tells which shard holds the row. Shard 0 keeps its existing
+ * ids. Only ever raises a counter, so it is safe to run on every start.
+ */
+@Component
+@Order(2)
+public class ShardIdRangeInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardIdRangeInitializer.class);
+    private static final List<String> TABLES = Arrays.asList(
+            "expenses", "expense_splits", "settlements", "recurring_expenses", "expense_attachments");
+
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public ShardIdRangeInitializer(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(shardRouter.getShardDataSource(shard));
+            boolean h2 = "H2".equals(jdbc.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+            long firstId = ShardRouter.firstRowId(shard);
+            for (String table : TABLES) {
+                Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+                if (maxId != null && maxId >= firstId) {
+                    continue;
+                }
+                jdbc.execute(h2
+                        ? "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + firstId
+                        : "ALTER TABLE " + table + " AUTO_INCREMENT = " + firstId);
+                logger.info("Shard {} allocates {} ids from {}", shard, table, firstId);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.splitapp.sharding;
+
+/**
+ * Maps a group to the shard that holds its expenses, splits, settlements and
+ * ledger. Declare a bean of this type to replace the default
+ * {@link ModuloShardResolver}; the mapping must stay stable for as long as the
+ * data lives where it was written.
+ */
+public interface ShardResolver {
+
+    int shardForGroup(long groupId, int shardCount);
+}
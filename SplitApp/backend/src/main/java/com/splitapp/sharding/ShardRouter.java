@@ -0,0 +1,140 @@
+package com.splitapp.sharding;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Entry point to the shard layout. Groups are placed by the
+ * {@link ShardResolver}; expense, split and settlement rows are placed by id,
+ * because every shard allocates those ids from its own range starting at
+ * {@code shard << ROW_ID_SHIFT} (see {@link ShardIdRangeInitializer}).
+ * <p>
+ * With sharding disabled there is a single shard and every method degrades to
+ * running the query once on the calling thread.
+ */
+@Component
+public class ShardRouter {
+
+    public static final int ROW_ID_SHIFT = 40;
+
+    private final ShardingProperties properties;
+    private final ShardResolver shardResolver;
+    private final ObjectProvider<ShardRoutingDataSource> routingDataSource;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final Executor queryExecutor;
+    private volatile TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public ShardRouter(
+            ShardingProperties properties,
+            ObjectProvider<ShardResolver> shardResolver,
+            ObjectProvider<ShardRoutingDataSource> routingDataSource,
+            ObjectProvider<PlatformTransactionManager> transactionManager,
+            @Qualifier("queryExecutor") Executor queryExecutor) {
+        this.properties = properties;
+        this.shardResolver = shardResolver.getIfAvailable(ModuloShardResolver::new);
+        this.routingDataSource = routingDataSource;
+        this.transactionManager = transactionManager;
+        this.queryExecutor = queryExecutor;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getShardCount() {
+        return properties.getShardCount();
+    }
+
+    public int shardForGroup(long groupId) {
+        return isEnabled() ? shardResolver.shardForGroup(groupId, getShardCount()) : 0;
+    }
+
+    public int shardForRow(long rowId) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        int shard = (int) (rowId >>> ROW_ID_SHIFT);
+        if (shard >= getShardCount()) {
+            throw new IllegalArgumentException("Row id " + rowId + " does not belong to any shard");
+        }
+        return shard;
+    }
+
+    public static long firstRowId(int shard) {
+        return ((long) shard << ROW_ID_SHIFT) + 1;
+    }
+
+    public DataSource getShardDataSource(int shard) {
+        return routingDataSource.getObject().getShard(shard);
+    }
+
+    /**
+     * Runs a read-only query on every shard in parallel and concatenates the
+     * results in shard order. Row ids grow with the shard number, so lists
+     * ordered by id on each shard stay ordered by id after the merge.
+     */
+    public <T> List<T> scatter(Supplier<List<T>> query) {
+        if (!isEnabled()) {
+            return readOnlyTransaction().execute(status -> query.get());
+        }
+
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(getShardCount());
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.callOn(target,
+                    () -> readOnlyTransaction().execute(status -> query.get())), queryExecutor));
+        }
+
+        List<T> merged = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                merged.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return merged;
+    }
+
+    /**
+     * Runs the action once per shard, one after another, each bound to its shard.
+     */
+    public void forEachShard(Runnable action) {
+        if (!isEnabled()) {
+            action.run();
+            return;
+        }
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            ShardContext.callOn(shard, () -> {
+                action.run();
+                return null;
+            });
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = readOnlyTransaction;
+        if (template == null) {
+            template = new TransactionTemplate(transactionManager.getObject());
+            template.setReadOnly(true);
+            readOnlyTransaction = template;
+        }
+        return template;
+    }
+}
@@ -0,0 +1,91 @@
+package com.splitapp.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements {@link RouteToShard}. Ordered ahead of the optimistic lock retry,
+ * the group lock and the transaction interceptor, so the shard is chosen before
+ * any connection is taken.
+ * <p>
+ * Inside a web request the shard stays bound until {@link ShardContextFilter}
+ * clears it, so lazy loads during serialization read from the same shard. A
+ * unit of work that tries to reach a second shard fails instead of silently
+ * reading the wrong database.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 3)
+public class ShardRoutingAspect {
+
+    private final ShardRouter shardRouter;
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final ConcurrentHashMap<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ShardRoutingAspect(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Around("@annotation(route)")
+    public Object route(ProceedingJoinPoint joinPoint, RouteToShard route) throws Throwable {
+        if (!shardRouter.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        int shard = resolveShard(joinPoint, route);
+        Integer current = ShardContext.current();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException(
+                        "Cannot reach shard " + shard + " from a unit of work bound to shard " + current);
+            }
+            return joinPoint.proceed();
+        }
+        if (shard != 0 && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot reach shard " + shard + " from a transaction on shard 0");
+        }
+
+        ShardContext.set(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            if (RequestContextHolder.getRequestAttributes() == null) {
+                ShardContext.clear();
+            }
+        }
+    }
+
+    private int resolveShard(ProceedingJoinPoint joinPoint, RouteToShard route) {
+        boolean byGroup = !route.group().isEmpty();
+        Object value = evaluate(joinPoint, byGroup ? route.group() : route.row());
+        if (value == null) {
+            return 0;
+        }
+        long id = ((Number) value).longValue();
+        return byGroup ? shardRouter.shardForGroup(id) : shardRouter.shardForRow(id);
+    }
+
+    private Object evaluate(ProceedingJoinPoint joinPoint, String expression) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                joinPoint.getTarget(), signature.getMethod(), joinPoint.getArgs(), parameterNames);
+        return expressions.computeIfAbsent(expression, parser::parseExpression).getValue(context);
+    }
+}
@@ -0,0 +1,119 @@
+package com.splitapp.benchmark;
+
+import com.splitapp.concurrency.GroupLockRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures contention on {@link GroupLockRegistry}: writer threads take a
+ * group lock the way a transaction does, hold it for a simulated critical
+ * section, and release it on completion. Runs every combination of
+ * <ul>
+ *   <li>same group: all writers hit one group, so they must queue;</li>
+ *   <li>cross group: each write picks one of many groups at random;</li>
+ * </ul>
+ * with the configured stripes and with a single stripe, which is what one
+ * lock for all groups would cost. Prints throughput, the share of
+ * acquisitions that had to wait, and the mean wait.
+ * <p>
+ * Needs no database or Spring context. Run {@link #main} from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.splitapp.benchmark.GroupLockBenchmark}. Tune it with
+ * {@code -Dthreads}, {@code -Dstripes}, {@code -Dgroups}, {@code -DholdMicros}
+ * and {@code -DdurationSeconds}.
+ */
+public class GroupLockBenchmark {
+
+    private static final int THREADS = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors() * 2);
+    private static final int STRIPES = Integer.getInteger("stripes", 256);
+    private static final int GROUPS = Integer.getInteger("groups", 10_000);
+    private static final long HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("holdMicros", 50));
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(Integer.getInteger("durationSeconds", 5));
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d threads, %d groups, %d us held per write%n",
+                THREADS, GROUPS, TimeUnit.NANOSECONDS.toMicros(HOLD_NANOS));
+        for (boolean sameGroup : new boolean[] {true, false}) {
+            for (int stripes : new int[] {STRIPES, 1}) {
+                run(sameGroup, stripes);
+            }
+        }
+    }
+
+    private static void run(boolean sameGroup, int stripes) throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GroupLockRegistry registry = new GroupLockRegistry(stripes, meterRegistry);
+        LongAdder writes = new LongAdder();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        List<Thread> threads = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        long groupId = sameGroup ? 1L : 1 + ThreadLocalRandom.current().nextInt(GROUPS);
+                        write(registry, groupId);
+                        if (measuring.get()) {
+                            writes.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "group-lock-benchmark-" + i);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+
+        TimeUnit.NANOSECONDS.sleep(WARMUP_NANOS);
+        double contendedBefore = meterRegistry.counter("splitapp.group.lock.contended").count();
+        long waitsBefore = meterRegistry.timer("splitapp.group.lock.wait").count();
+        double waitedBefore = meterRegistry.timer("splitapp.group.lock.wait").totalTime(TimeUnit.NANOSECONDS);
+        measuring.set(true);
+        long started = System.nanoTime();
+        TimeUnit.NANOSECONDS.sleep(DURATION_NANOS);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - started;
+        double contended = meterRegistry.counter("splitapp.group.lock.contended").count() - contendedBefore;
+        long waits = meterRegistry.timer("splitapp.group.lock.wait").count() - waitsBefore;
+        double waited = meterRegistry.timer("splitapp.group.lock.wait").totalTime(TimeUnit.NANOSECONDS) - waitedBefore;
+        stop.set(true);
+        done.await();
+
+        long total = writes.sum();
+        System.out.printf("%-11s %4d stripe(s)  %10.0f writes/s  %5.1f%% waited  mean wait %8.1f us%n",
+                sameGroup ? "same group" : "cross group", stripes,
+                total / (elapsed / 1e9), total == 0 ? 0 : 100.0 * Math.min(contended, total) / total,
+                waits == 0 ? 0 : waited / waits / 1_000);
+    }
+
+    // What a transaction does: lock, work while holding it, release on completion
+    private static void write(GroupLockRegistry registry, long groupId) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registry.lockForTransaction(groupId);
+            long until = System.nanoTime() + HOLD_NANOS;
+            while (System.nanoTime() - until < 0) {
+                Thread.onSpinWait();
+            }
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            for (TransactionSynchronization synchronization : synchronizations) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.splitapp.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitapp.SplitAppApplication;
+import com.splitapp.model.Expense;
+import com.splitapp.model.ExpenseSplit;
+import com.splitapp.model.Group;
+import com.splitapp.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares JSON, Smile and CBOR on the payloads of the list endpoints, using
+ * the mappers the HTTP converters actually use. Builds expense and split
+ * lists shaped like the responses of {@code /api/expenses/group/{groupId}}
+ * and {@code /api/expenses/splits/user/{userId}}, then logs the encoded size
+ * and the median time to serialize and deserialize each.
+ * <p>
+ * Lives with the test sources so it never ships in the application jar. Run
+ * {@link #main} from the IDE or with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.splitapp.benchmark.PayloadFormatBenchmark
+ * -Dexec.args=--spring.profiles.active=local}; it starts the application
+ * without a web server, runs once and exits.
+ */
+@Component
+@ConditionalOnProperty(prefix = "splitapp.benchmark.payload-formats", name = "enabled", havingValue = "true")
+public class PayloadFormatBenchmark implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadFormatBenchmark.class);
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "INR"};
+    private static final String[] DESCRIPTIONS = {
+        "Groceries", "Dinner at the corner bistro", "Taxi to the airport", "Electricity bill", "Cinema tickets",
+        "Weekend cabin rental", "Coffee", "Internet - monthly plan"
+    };
+
+    private final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+    private final List<Integer> listSizes;
+    private final int warmupIterations;
+    private final int iterations;
+
+    @Autowired
+    public PayloadFormatBenchmark(
+            MappingJackson2HttpMessageConverter jsonConverter,
+            MappingJackson2SmileHttpMessageConverter smileConverter,
+            MappingJackson2CborHttpMessageConverter cborConverter,
+            @Value("${splitapp.benchmark.payload-formats.list-sizes:100,1000,10000}") List<Integer> listSizes,
+            @Value("${splitapp.benchmark.payload-formats.warmup-iterations:50}") int warmupIterations,
+            @Value("${splitapp.benchmark.payload-formats.iterations:100}") int iterations) {
+        this.mappers.put("JSON", jsonConverter.getObjectMapper());
+        this.mappers.put("Smile", smileConverter.getObjectMapper());
+        this.mappers.put("CBOR", cborConverter.getObjectMapper());
+        this.listSizes = listSizes;
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(SplitAppApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setDefaultProperties(Collections.singletonMap(
+                "splitapp.benchmark.payload-formats.enabled", "true"));
+        // Scheduled jobs keep the JVM alive after the run
+        System.exit(SpringApplication.exit(application.run(args)));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        for (int size : listSizes) {
+            List<Expense> expenses = expenses(size);
+            measure("expenses", size, expenses, Expense.class);
+            measure("splits", size, splits(expenses), ExpenseSplit.class);
+        }
+    }
+
+    private void measure(String payload, int size, List<?> values, Class<?> elementType) throws IOException {
+        for (Map.Entry<String, ObjectMapper> format : mappers.entrySet()) {
+            ObjectMapper mapper = format.getValue();
+            JavaType listType = mapper.getTypeFactory().constructCollectionType(List.class, elementType);
+            byte[] encoded = mapper.writeValueAsBytes(values);
+
+            long[] serialize = new long[iterations];
+            long[] deserialize = new long[iterations];
+            for (int i = -warmupIterations; i < iterations; i++) {
+                long started = System.nanoTime();
+                encoded = mapper.writeValueAsBytes(values);
+                long serialized = System.nanoTime();
+                mapper.readValue(encoded, listType);
+                long deserialized = System.nanoTime();
+                if (i >= 0) {
+                    serialize[i] = serialized - started;
+                    deserialize[i] = deserialized - serialized;
+                }
+            }
+            logger.info(String.format("%-8s x%-6d %-5s %10d bytes  serialize %9.3f ms  deserialize %9.3f ms",
+                    payload, size, format.getKey(), encoded.length, median(serialize), median(deserialize)));
+        }
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+
+    // A group of eight members with expenses spread over a year, each split between three to five members
+    private static List<Expense> expenses(int count) {
+        Random random = new Random(42);
+        List<User> members = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setName("Member " + id);
+            user.setEmail("member" + id + "@example.com");
+            members.add(user);
+        }
+        Group group = new Group();
+        group.setId(1L);
+        group.setName("Shared flat");
+        group.setBaseCurrency("USD");
+        group.setCreator(members.get(0));
+        group.setMembers(members);
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Expense expense = new Expense();
+            expense.setId((long) i + 1);
+            expense.setDescription(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+            expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+            expense.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            expense.setGroup(group);
+            expense.setPaidBy(members.get(random.nextInt(members.size())));
+            expense.setExpenseDate(start.plusMinutes(random.nextInt(525_600)));
+            expense.setCreatedAt(expense.getExpenseDate());
+            expense.setUpdatedAt(expense.getExpenseDate());
+            expense.setVersion(0L);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static List<ExpenseSplit> splits(List<Expense> expenses) {
+        Random random = new Random(7);
+        List<ExpenseSplit> splits = new ArrayList<>();
+        long id = 1;
+        for (Expense expense : expenses) {
+            int shares = 3 + random.nextInt(3);
+            BigDecimal share = expense.getAmount().divide(BigDecimal.valueOf(shares), 2, RoundingMode.DOWN);
+            for (int i = 0; i < shares; i++) {
+                ExpenseSplit split = new ExpenseSplit();
+                split.setId(id++);
+                split.setExpense(expense);
+                split.setUser(expense.getGroup().getMembers().get(random.nextInt(8)));
+                split.setAmount(share);
+                split.setSettled(random.nextBoolean());
+                split.setCreatedAt(expense.getCreatedAt());
+                split.setVersion(0L);
+                splits.add(split);
+            }
+        }
+        return splits;
+    }
+}
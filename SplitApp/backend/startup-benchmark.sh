@@ -0,0 +1,67 @@
+#!/bin/bash
+# Measures time to first successful request: starts the backend, polls an endpoint until it
+# answers 200, then stops it. Repeats RUNS times and prints each time and the median.
+#
+#   ./startup-benchmark.sh                       # the backend image: prod profile, class-data sharing archive
+#   ./startup-benchmark.sh java -jar target/splitapp-0.0.1-SNAPSHOT.jar --spring.profiles.active=local
+#
+# By default it runs IMAGE (build it with docker build -t splitapp-backend .) the way it is deployed,
+# against the MySQL database in SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME and
+# SPRING_DATASOURCE_PASSWORD. A command given instead must start the backend in the foreground,
+# listening on PORT.
+set -e
+
+RUNS="${RUNS:-5}"
+PORT="${PORT:-8081}"
+PROBE_PATH="${PROBE_PATH:-/api/users}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+IMAGE="${IMAGE:-splitapp-backend}"
+
+cd "$(dirname "$0")"
+if [ $# -eq 0 ]; then
+  if ! docker image inspect "$IMAGE" > /dev/null 2>&1; then
+    echo "No image ${IMAGE}; run docker build -t ${IMAGE} . first or pass a start command" >&2
+    exit 1
+  fi
+  set -- docker run --rm --network host \
+    -e SPRING_PROFILES_ACTIVE=prod \
+    -e SERVER_PORT="$PORT" \
+    -e SPRING_DATASOURCE_URL="${SPRING_DATASOURCE_URL:-jdbc:mysql://localhost:3306/splitapp?createDatabaseIfNotExist=true&useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true}" \
+    -e SPRING_DATASOURCE_USERNAME="${SPRING_DATASOURCE_USERNAME:-root}" \
+    -e SPRING_DATASOURCE_PASSWORD="${SPRING_DATASOURCE_PASSWORD:-root}" \
+    "$IMAGE"
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+times=()
+for run in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  "$@" > /dev/null 2>&1 &
+  pid=$!
+  elapsed=""
+  while kill -0 "$pid" 2>/dev/null; do
+    status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:${PORT}${PROBE_PATH}" || true)
+    if [ "$status" = "200" ]; then
+      elapsed=$(( $(now_ms) - start ))
+      break
+    fi
+    if [ $(( $(now_ms) - start )) -gt $(( TIMEOUT_SECONDS * 1000 )) ]; then
+      break
+    fi
+    sleep 0.05
+  done
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  if [ -z "$elapsed" ]; then
+    echo "Run ${run}: no successful request to ${PROBE_PATH}" >&2
+    exit 1
+  fi
+  echo "Run ${run}: first successful request after ${elapsed} ms"
+  times+=("$elapsed")
+done
+
+median=$(printf '%s\n' "${times[@]}" | sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }')
+echo "Median time to first successful request over ${RUNS} runs: ${median} ms"
@@ -146,8 +146,11 @@ function GroupDetail() {
   const [loading, setLoading] = useState(true);
   const [group, setGroup] = useState(null);
   const [expenses, setExpenses] = useState([]);
+  const [totalExpenses, setTotalExpenses] = useState(0);
+  const [allExpensesLoaded, setAllExpensesLoaded] = useState(false);
   const [members, setMembers] = useState([]);
   const [settlements, setSettlements] = useState([]);
+  const [allSettlementsLoaded, setAllSettlementsLoaded] = useState(false);
   const [balances, setBalances] = useState([]);
   const [tabValue, setTabValue] = useState(0);
   const [addMemberDialog, setAddMemberDialog] = useState(false);
@@ -159,25 +162,21 @@ function GroupDetail() {
       try {
         setLoading(true);
         
-        // Fetch group data
-        const groupResponse = await groupService.getGroup(id);
-        setGroup(groupResponse.data);
+        // Fetch group data, the latest expenses and settlements, and balances in one request
+        const detailResponse = await groupService.getGroupDetail(id);
+        const detail = detailResponse.data;
+        setGroup(detail.group);
         
-        if (groupResponse.data && groupResponse.data.members) {
-          setMembers(groupResponse.data.members);
+        if (detail.group && detail.group.members) {
+          setMembers(detail.group.members);
         }
         
-        // Fetch expenses for this group
-        const expensesResponse = await expenseService.getExpenses(id);
-        setExpenses(expensesResponse.data);
-        
-        // Fetch settlements for this group
-        const settlementsResponse = await settlementService.getSettlements(id);
-        setSettlements(settlementsResponse.data);
-        
-        // Fetch balances for this group
-        const balancesResponse = await settlementService.getUnsettledBalances(id);
-        setBalances(balancesResponse.data);
+        setExpenses(detail.expenses);
+        setTotalExpenses(detail.totalExpenses);
+        setAllExpensesLoaded(detail.expenses.length >= detail.totalExpenses);
+        setSettlements(detail.settlements);
+        setAllSettlementsLoaded(false);
+        setBalances(detail.balances);
         
         setLoading(false);
       } catch (error) {
@@ -190,6 +189,41 @@ function GroupDetail() {
     fetchGroupDetails();
   }, [id]);
 
+  // The detail only carries the latest items; load the full lists when their tab is opened
+  useEffect(() => {
+    if (loading || !group) {
+      return;
+    }
+    const fetchAllExpenses = async () => {
+      try {
+        const expensesResponse = await expenseService.getExpenses(id);
+        setExpenses(expensesResponse.data);
+        setTotalExpenses(expensesResponse.data.length);
+        setAllExpensesLoaded(true);
+      } catch (error) {
+        console.error('Error fetching expenses:', error);
+        setError('Failed to load all expenses. Please try again later.');
+      }
+    };
+    const fetchAllSettlements = async () => {
+      try {
+        const settlementsResponse = await settlementService.getSettlements(id);
+        setSettlements(settlementsResponse.data);
+        setAllSettlementsLoaded(true);
+      } catch (error) {
+        console.error('Error fetching settlements:', error);
+        setError('Failed to load all settlements. Please try again later.');
+      }
+    };
+
+    if (tabValue === 1 && !allExpensesLoaded) {
+      fetchAllExpenses();
+    }
+    if (tabValue === 3 && !allSettlementsLoaded) {
+      fetchAllSettlements();
+    }
+  }, [id, tabValue, loading, group, allExpensesLoaded, allSettlementsLoaded]);
+
   const handleTabChange = (event, newValue) => {
     setTabValue(newValue);
   };
@@ -353,7 +387,7 @@ function GroupDetail() {
                     Expenses
                   </Typography>
                   <Typography variant="h4" color="primary">
-                    {expenses.length}
+                    {totalExpenses}
                   </Typography>
                 </Paper>
               </Grid>
@@ -428,7 +462,7 @@ function GroupDetail() {
                 </React.Fragment>
               ))}
             </List>
-            {expenses.length > 3 && (
+            {totalExpenses > 3 && (
               <Button
                 color="primary"
                 onClick={() => setTabValue(1)}
@@ -11,6 +11,11 @@ const groupService = {
     return api.get(`/groups/${groupId}`);
   },
   
+  // Get a group together with its latest expenses, settlements and balances
+  getGroupDetail: (groupId) => {
+    return api.get(`/groups/${groupId}/detail`);
+  },
+  
   // Create a new group
   createGroup: (groupData) => {
     return api.post('/groups', groupData);
@@ -8,6 +8,9 @@ MYSQL_LOCATION="centralindia"  # Supported region for MySQL Flexible Server
 APP_NAME="splitapp"
 ACR_NAME="${APP_NAME}acr"
 ADMIN_USERNAME="dbadmin"
+# Hibernate creates and migrates the schema at startup until the project ships real
+# migrations; DDL_AUTO=validate only checks it, for a database that is already current
+DDL_AUTO="${DDL_AUTO:-update}"
 
 # Generate a random password for MySQL
 DB_PASSWORD=$(openssl rand -base64 16)
@@ -41,7 +44,8 @@ az deployment group create \
   --parameters location=$LOCATION \
   --parameters mysqlLocation=$MYSQL_LOCATION \
   --parameters administratorLogin=$ADMIN_USERNAME \
-  --parameters administratorLoginPassword=$DB_PASSWORD
+  --parameters administratorLoginPassword=$DB_PASSWORD \
+  --parameters ddlAuto=$DDL_AUTO
 
 # Get the output URLs
 BACKEND_URL=$(az deployment group show --resource-group $RESOURCE_GROUP --name main --query properties.outputs.backendUrl.value -o tsv)